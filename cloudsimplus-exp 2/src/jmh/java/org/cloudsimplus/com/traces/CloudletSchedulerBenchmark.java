@@ -0,0 +1,151 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.brokers.DatacenterBrokerSimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.DatacenterSimple;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.hosts.HostSimple;
+import org.cloudsimplus.resources.Pe;
+import org.cloudsimplus.resources.PeSimple;
+import org.cloudsimplus.schedulers.vm.VmSchedulerTimeShared;
+import org.cloudsimplus.util.Log;
+import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time each {@link SchedulerType} takes to run a whole simulation,
+ * from 100 to 1 million Cloudlets, using the same setup as {@link CompletelyFairScheduler}:
+ * a single host with a VM using all its PEs and Cloudlets of 1 PE.
+ *
+ * <p>{@link #runSimulation()} measures the average wall time of each simulation.
+ * {@link #eventThroughput(EventCounter)} runs the same simulations in throughput mode,
+ * where the {@link EventCounter} reports the number of simulation events processed per second.
+ * Run with {@code -prof gc} to get the allocation rate.
+ * The benchmarks are only built with the jmh profile ({@code mvn -Pjmh package}), as described in the pom.
+ * Large Cloudlet counts may take minutes per simulation with some policies,
+ * so select the parameters with {@code -p cloudlets=100,10000}, for instance.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class CloudletSchedulerBenchmark {
+    private static final long HOST_MIPS = 1000;
+    private static final int CLOUDLET_LENGTH = 10000; //in MI
+
+    /** How many Cloudlets get priority 4 (as CompletelyFairScheduler sets for the first half). */
+    public enum PriorityMix { NONE, HALF, ALL }
+
+    /** A {@link SchedulerType} name (the enum is package-private, thus it can't be used by the generated code). */
+    @Param({"SPACE_SHARED", "TIME_SHARED", "COMPLETELY_FAIR", "FAST_FAIR"})
+    public String scheduler;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int cloudlets;
+
+    @Param({"4", "16"})
+    public int pes;
+
+    @Param({"NONE", "HALF"})
+    public PriorityMix priorityMix;
+
+    private CloudSimPlus simulation;
+    /** The events processed by the current simulation. */
+    private long processedEvents;
+
+    /**
+     * Counts the events processed by the simulations of {@link #eventThroughput(EventCounter)}.
+     * JMH divides operation counters by the measured time, so they are reported as events per second
+     * (under the average time mode, they would be reported as time per event instead).
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class EventCounter {
+        public long events;
+    }
+
+    @Setup(Level.Trial)
+    public void disableLogging() {
+        Log.setLevel(ch.qos.logback.classic.Level.OFF);
+    }
+
+    /**
+     * Creates a new simulation before each run, so that building it is not measured.
+     */
+    @Setup(Level.Invocation)
+    public void createSimulation() {
+        simulation = new CloudSimPlus();
+        processedEvents = 0;
+        simulation.addOnEventProcessingListener(evt -> processedEvents++);
+
+        final var peList = new ArrayList<Pe>(pes);
+        for (int i = 0; i < pes; i++) {
+            peList.add(new PeSimple(HOST_MIPS));
+        }
+        final Host host = new HostSimple(2048, 10000, 1000000, peList).setVmScheduler(new VmSchedulerTimeShared());
+        new DatacenterSimple(simulation, List.of(host));
+
+        final var broker = new DatacenterBrokerSimple(simulation);
+        final Vm vm = new VmSimple(0, HOST_MIPS, pes)
+            .setRam(512).setBw(1000).setSize(10000)
+            .setCloudletScheduler(SchedulerType.valueOf(scheduler).newScheduler());
+
+        final int prioritized = switch (priorityMix) {
+            case NONE -> 0;
+            case HALF -> cloudlets / 2;
+            case ALL -> cloudlets;
+        };
+
+        final var cloudletList = new ArrayList<Cloudlet>(cloudlets);
+        final var utilizationCpu = new UtilizationModelFull();
+        final var utilizationRam = new UtilizationModelDynamic(0.2);
+        for (int i = 0; i < cloudlets; i++) {
+            cloudletList.add(new CloudletSimple(i, CLOUDLET_LENGTH, 1)
+                .setFileSize(300)
+                .setOutputSize(300)
+                .setUtilizationModelCpu(utilizationCpu)
+                .setUtilizationModelRam(utilizationRam)
+                .setPriority(i < prioritized ? 4 : 0));
+        }
+
+        broker.submitVmList(List.of(vm));
+        broker.submitCloudletList(cloudletList);
+    }
+
+    @Benchmark
+    public double runSimulation() {
+        return simulation.start();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public double eventThroughput(final EventCounter counter) {
+        final double finishTime = simulation.start();
+        counter.events += processedEvents;
+        return finishTime;
+    }
+}
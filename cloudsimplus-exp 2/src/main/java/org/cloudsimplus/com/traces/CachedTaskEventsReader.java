@@ -0,0 +1,158 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.brokers.DatacenterBroker;
+import org.cloudsimplus.brokers.DatacenterBrokerSimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.core.CloudSimTag;
+import org.cloudsimplus.datacenters.Datacenter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Function;
+
+/**
+ * Creates every Cloudlet and Broker of a task events trace file up front (as {@code GoogleTaskEventsTraceReader.process()} does),
+ * but decoding the rows from the {@link TraceColumnarCache} of the file instead of parsing its text.
+ *
+ * <ul>
+ *   <li>SUBMIT events create a Cloudlet (up to {@link #setMaxCloudletsToCreate(int) a maximum}),
+ *   submitted to the Broker of the event's user with a delay that makes it arrive at the event time;</li>
+ *   <li>EVICT, FAIL, FINISH, KILL and LOST events finish the task's Cloudlet at the event time,
+ *   as the {@link LazyTaskEventsReplay} does;</li>
+ *   <li>other events are ignored, since the simulation does its own scheduling.</li>
+ * </ul>
+ *
+ * <p>The stock reader changes the status of a Cloudlet when its task ends instead,
+ * so the results may differ from the ones of the CSV file.</p>
+ */
+final class CachedTaskEventsReader {
+    private static final String BROKER_PREFIX = "Broker_";
+    private static final double MICROS_PER_SECOND = 1_000_000;
+
+    private final CloudSimPlus simulation;
+    private final Datacenter datacenter;
+    private final Path taskEventsFile;
+    private final Function<TaskEventRow, Cloudlet> cloudletFactory;
+
+    private final List<DatacenterBroker> brokers = new ArrayList<>();
+    private final Map<String, DatacenterBroker> brokersByUsername = new HashMap<>();
+    /** Cloudlets to be submitted at once, grouped by Broker. */
+    private final Map<DatacenterBroker, List<Cloudlet>> submissions = new LinkedHashMap<>();
+    /** Created Cloudlets, indexed by {@link TaskEventRow#taskKey()}. */
+    private final Map<Long, Cloudlet> cloudletsByTask = new HashMap<>();
+    /** Terminal events of created Cloudlets, polled in timestamp order even if the file is not sorted. */
+    private final Queue<TaskEventRow> pendingTerminations = new TimestampQueue<>();
+    private int maxCloudletsToCreate = Integer.MAX_VALUE;
+    private long terminatedCloudlets;
+    private long rowsRead;
+
+    /**
+     * @param cloudletFactory creates the Cloudlet for a SUBMIT event
+     */
+    CachedTaskEventsReader(
+        final CloudSimPlus simulation, final Datacenter datacenter,
+        final Path taskEventsFile, final Function<TaskEventRow, Cloudlet> cloudletFactory)
+    {
+        this.simulation = simulation;
+        this.datacenter = datacenter;
+        this.taskEventsFile = taskEventsFile;
+        this.cloudletFactory = cloudletFactory;
+    }
+
+    CachedTaskEventsReader setMaxCloudletsToCreate(final int maxCloudletsToCreate) {
+        this.maxCloudletsToCreate = maxCloudletsToCreate;
+        return this;
+    }
+
+    /**
+     * Reads the cache of the trace file (building it if needed), submits the created Cloudlets to their Brokers
+     * and registers the clock tick listener that finishes them at their terminal events.
+     * Must be called before the simulation starts.
+     * @return the created Cloudlets
+     */
+    List<Cloudlet> process() {
+        final var cloudlets = new ArrayList<Cloudlet>();
+        try (var taskEvents = TraceWindowReader.openCache(taskEventsFile, TaskEventRow::of)) {
+            taskEvents.readUntil(Long.MAX_VALUE, event -> {
+                if (event.eventType() == TaskEventRow.SUBMIT && cloudlets.size() < maxCloudletsToCreate) {
+                    cloudlets.add(createCloudlet(event));
+                } else if (event.isTerminal() && cloudletsByTask.containsKey(event.taskKey())) {
+                    pendingTerminations.add(event);
+                }
+            });
+            rowsRead = taskEvents.getRowsRead();
+        }
+
+        submissions.forEach(DatacenterBroker::submitCloudletList);
+        submissions.clear();
+
+        pendingTerminations.stream().mapToLong(TaskEventRow::timestamp).distinct().forEach(timestamp ->
+            datacenter.schedule(timestamp / MICROS_PER_SECOND, CloudSimTag.VM_UPDATE_CLOUDLET_PROCESSING));
+
+        simulation.addOnClockTickListener(info -> finishTerminatedCloudlets(info.getTime()));
+        return cloudlets;
+    }
+
+    private Cloudlet createCloudlet(final TaskEventRow event) {
+        final Cloudlet cloudlet = cloudletFactory.apply(event);
+        cloudlet.setJobId(event.jobId());
+        cloudlet.setSubmissionDelay(event.timestamp() / MICROS_PER_SECOND);
+
+        final DatacenterBroker broker = brokersByUsername.computeIfAbsent(event.username(), this::createBroker);
+        submissions.computeIfAbsent(broker, b -> new ArrayList<>()).add(cloudlet);
+        cloudletsByTask.put(event.taskKey(), cloudlet);
+        return cloudlet;
+    }
+
+    private DatacenterBroker createBroker(final String username) {
+        final var broker = new DatacenterBrokerSimple(simulation, BROKER_PREFIX + username);
+        brokers.add(broker);
+        return broker;
+    }
+
+    /**
+     * Finishes the Cloudlets whose terminal event time has been reached,
+     * by reducing their length to what they have already executed.
+     */
+    private void finishTerminatedCloudlets(final double time) {
+        boolean finished = false;
+        while (!pendingTerminations.isEmpty() && pendingTerminations.peek().timestamp() / MICROS_PER_SECOND <= time) {
+            final Cloudlet cloudlet = cloudletsByTask.get(pendingTerminations.poll().taskKey());
+            if (!cloudlet.isFinished()) {
+                cloudlet.setLength(Math.max(1, cloudlet.getFinishedLengthSoFar()));
+                terminatedCloudlets++;
+                finished = true;
+            }
+        }
+
+        if (finished) {
+            //Makes the new lengths take effect at the current time
+            datacenter.schedule(0, CloudSimTag.VM_UPDATE_CLOUDLET_PROCESSING);
+        }
+    }
+
+    /** @return the Brokers created, one for each user */
+    List<DatacenterBroker> getBrokers() {
+        return brokers;
+    }
+
+    /** @return the created Cloudlets, indexed by {@link TaskEventRow#taskKey()} */
+    Map<Long, Cloudlet> getCloudletsByTask() {
+        return cloudletsByTask;
+    }
+
+    long getTerminatedCloudlets() {
+        return terminatedCloudlets;
+    }
+
+    /** @return the number of task events read from the cache */
+    long getRowsRead() {
+        return rowsRead;
+    }
+}
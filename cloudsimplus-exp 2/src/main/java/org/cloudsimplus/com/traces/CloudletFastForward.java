@@ -0,0 +1,253 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.brokers.DatacenterBroker;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+import org.cloudsimplus.vms.Vm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Computes the start and finish times of Cloudlets analytically, instead of simulating every processing update,
+ * for the setup of {@link SchedulerTimeShared} and {@link SchedulerSpaceShared}:
+ * Cloudlets using {@link UtilizationModelFull} for CPU, mapped to VMs in round-robin
+ * (as {@link org.cloudsimplus.brokers.DatacenterBrokerSimple} does) and VMs getting all the MIPS they request.
+ *
+ * <p>Between two completions or arrivals, the set of running Cloudlets and the MIPS each one gets don't change,
+ * so the clock jumps straight to the next of them. Cloudlets finishing at the same time,
+ * such as a batch of identical Cloudlets, are handled in a single step.</p>
+ *
+ * <ul>
+ *   <li>Time-shared: every Cloudlet runs as soon as it arrives. When the Cloudlets request more PEs than the VM has,
+ *   each PE of a Cloudlet gets the VM MIPS scaled by VM PEs / requested PEs.</li>
+ *   <li>Space-shared: a Cloudlet runs at the full VM MIPS when there are enough free PEs.
+ *   Otherwise it waits, and the first waiting Cloudlet that fits runs when PEs are released.
+ *   Cloudlets needing more PEs than the VM has never run.</li>
+ * </ul>
+ *
+ * <p>Each VM starts running its Cloudlets at its creation time (plus their submission delay),
+ * as the Broker submits them once the VM is created.
+ * Enable it with -Dscheduler.fastforward=true to simulate just the VM creation,
+ * or use -Dscheduler.validate=true to run both and compare the finish times.
+ * The fast-forward prints a {@link ResultChecksum} of the analytic table,
+ * so it can be checked with {@code ResultRegression SchedulerTimeShared -Dscheduler.fastforward=true}.</p>
+ */
+final class CloudletFastForward {
+    /** Skips the Cloudlet execution in the simulation and prints the analytic results, set with -Dscheduler.fastforward. */
+    static final boolean ENABLED = Boolean.getBoolean("scheduler.fastforward");
+
+    /** Runs the simulation and the analytic computation and prints the difference, set with -Dscheduler.validate. */
+    static final boolean VALIDATE = Boolean.getBoolean("scheduler.validate");
+
+    /** The time differences ignored when grouping completions into a single step (in seconds). */
+    private static final double EPSILON = 1e-9;
+
+    enum Policy { TIME_SHARED, SPACE_SHARED }
+
+    /**
+     * The analytic execution of a Cloudlet.
+     * Cloudlets that never run have {@link Double#NaN} start and finish times.
+     */
+    record Timing(long cloudletId, long vmId, double startTime, double finishTime, int priority, double lifeTime) {}
+
+    private final Policy policy;
+    private final List<Timing> timings = new ArrayList<>();
+    private long steps;
+
+    private CloudletFastForward(final Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @return true if all Cloudlets use {@link UtilizationModelFull} for CPU,
+     *         so that the MIPS they get only change when Cloudlets start or finish
+     */
+    static boolean isSupported(final List<Cloudlet> cloudlets) {
+        return cloudlets.stream().allMatch(cloudlet -> cloudlet.getUtilizationModelCpu() instanceof UtilizationModelFull);
+    }
+
+    /**
+     * Computes the execution of every Cloudlet.
+     * @param vms the VMs, already created by the simulation, whose creation time is when they get their Cloudlets
+     */
+    static CloudletFastForward run(final Policy policy, final List<Vm> vms, final List<Cloudlet> cloudlets) {
+        if (!isSupported(cloudlets)) {
+            throw new IllegalArgumentException("Fast-forward requires all Cloudlets to use UtilizationModelFull for CPU");
+        }
+
+        final var fastForward = new CloudletFastForward(policy);
+        final var cloudletsByVm = new HashMap<Vm, List<Cloudlet>>();
+        for (int i = 0; i < cloudlets.size(); i++) {
+            cloudletsByVm.computeIfAbsent(vms.get(i % vms.size()), vm -> new ArrayList<>()).add(cloudlets.get(i));
+        }
+
+        for (final Map.Entry<Vm, List<Cloudlet>> entry : cloudletsByVm.entrySet()) {
+            fastForward.runVm(entry.getKey(), entry.getValue(), entry.getKey().getStartTime());
+        }
+
+        fastForward.timings.sort(Comparator.comparingLong(Timing::cloudletId));
+        return fastForward;
+    }
+
+    List<Timing> getTimings() {
+        return timings;
+    }
+
+    /** @return the number of clock jumps taken, which would be processing updates in the simulation */
+    long getSteps() {
+        return steps;
+    }
+
+    private void runVm(final Vm vm, final List<Cloudlet> cloudlets, final double startTime) {
+        final var arrivals = new ArrayList<>(cloudlets);
+        arrivals.sort(Comparator.comparingDouble(Cloudlet::getSubmissionDelay));
+        if (policy == Policy.TIME_SHARED) {
+            runTimeShared(vm, arrivals, startTime);
+        } else {
+            runSpaceShared(vm, arrivals, startTime);
+        }
+    }
+
+    /**
+     * Every running Cloudlet PE progresses at the same rate,
+     * so it tracks the total MI each PE has executed since the beginning
+     * and each Cloudlet finishes when that total reaches the value it had when the Cloudlet arrived plus its length.
+     */
+    private void runTimeShared(final Vm vm, final List<Cloudlet> arrivals, final double startTime) {
+        record Running(Cloudlet cloudlet, double startTime, double targetProgress) {}
+        final var running = new PriorityQueue<Running>(Comparator.comparingDouble(Running::targetProgress));
+        double progress = 0;
+        long requestedPes = 0;
+        double time = startTime;
+        int next = 0;
+        while (next < arrivals.size() || !running.isEmpty()) {
+            final double rate = requestedPes == 0 ? 0 : vm.getMips() * Math.min(1.0, vm.getPesNumber() / (double) requestedPes);
+            final double nextArrival = next < arrivals.size() ? startTime + arrivals.get(next).getSubmissionDelay() : Double.MAX_VALUE;
+            final double nextCompletion = running.isEmpty() ? Double.MAX_VALUE : time + (running.peek().targetProgress() - progress) / rate;
+            final double nextTime = Math.min(nextArrival, nextCompletion);
+            progress += rate * (nextTime - time);
+            time = nextTime;
+            steps++;
+
+            while (!running.isEmpty() && running.peek().targetProgress() - progress <= EPSILON * Math.max(1, rate)) {
+                final Running done = running.poll();
+                requestedPes -= done.cloudlet().getPesNumber();
+                addTiming(done.cloudlet(), vm, done.startTime(), time);
+            }
+
+            while (next < arrivals.size() && startTime + arrivals.get(next).getSubmissionDelay() <= time + EPSILON) {
+                final Cloudlet cloudlet = arrivals.get(next++);
+                requestedPes += cloudlet.getPesNumber();
+                running.add(new Running(cloudlet, time, progress + cloudlet.getLength()));
+            }
+        }
+    }
+
+    private void runSpaceShared(final Vm vm, final List<Cloudlet> arrivals, final double startTime) {
+        record Running(Cloudlet cloudlet, double startTime, double finishTime) {}
+        final var running = new PriorityQueue<Running>(Comparator.comparingDouble(Running::finishTime));
+        final var waiting = new ArrayDeque<Cloudlet>();
+        long freePes = vm.getPesNumber();
+        double time = startTime;
+        int next = 0;
+        while (next < arrivals.size() || !running.isEmpty()) {
+            final double nextArrival = next < arrivals.size() ? startTime + arrivals.get(next).getSubmissionDelay() : Double.MAX_VALUE;
+            final double nextCompletion = running.isEmpty() ? Double.MAX_VALUE : running.peek().finishTime();
+            time = Math.min(nextArrival, nextCompletion);
+            steps++;
+
+            while (!running.isEmpty() && running.peek().finishTime() <= time + EPSILON) {
+                final Running done = running.poll();
+                freePes += done.cloudlet().getPesNumber();
+                addTiming(done.cloudlet(), vm, done.startTime(), done.finishTime());
+            }
+
+            while (next < arrivals.size() && startTime + arrivals.get(next).getSubmissionDelay() <= time + EPSILON) {
+                final Cloudlet cloudlet = arrivals.get(next++);
+                if (cloudlet.getPesNumber() > vm.getPesNumber()) {
+                    addTiming(cloudlet, vm, Double.NaN, Double.NaN);
+                } else {
+                    waiting.add(cloudlet);
+                }
+            }
+
+            final Iterator<Cloudlet> iterator = waiting.iterator();
+            while (freePes > 0 && iterator.hasNext()) {
+                final Cloudlet cloudlet = iterator.next();
+                if (cloudlet.getPesNumber() <= freePes) {
+                    iterator.remove();
+                    freePes -= cloudlet.getPesNumber();
+                    running.add(new Running(cloudlet, time, time + cloudlet.getLength() / vm.getMips()));
+                }
+            }
+        }
+    }
+
+    private void addTiming(final Cloudlet cloudlet, final Vm vm, final double startTime, final double finishTime) {
+        timings.add(new Timing(cloudlet.getId(), vm.getId(), startTime, finishTime, cloudlet.getPriority(), cloudlet.getLifeTime()));
+    }
+
+    void print() {
+        System.out.printf("%n%s fast-forward: %d Cloudlets in %d steps%n", policy, timings.size(), steps);
+        System.out.printf("%10s %6s %12s %12s %12s%n", "Cloudlet", "VM", "Start (s)", "Finish (s)", "Exec (s)");
+        for (final Timing timing : timings) {
+            System.out.printf("%10d %6d %12.2f %12.2f %12.2f%n",
+                timing.cloudletId(), timing.vmId(), timing.startTime(), timing.finishTime(), timing.finishTime() - timing.startTime());
+        }
+    }
+
+    /**
+     * Prints the {@link ResultChecksum} of the Cloudlets that finish, as if they were submitted by a given Broker.
+     */
+    void printChecksum(final DatacenterBroker broker) {
+        ResultChecksum.printRows(timings.stream()
+            .filter(timing -> !Double.isNaN(timing.finishTime()))
+            .map(timing -> new ResultChecksum.Row(
+                broker.getId(), timing.cloudletId(), timing.vmId(),
+                timing.startTime(), timing.finishTime(), timing.priority(), timing.lifeTime()))
+            .toList());
+    }
+
+    /**
+     * Prints how the analytic finish times differ from the simulated ones.
+     * @param finished the Cloudlets finished by the simulation
+     * @param simulatedEvents the number of events the simulation processed
+     */
+    void printDifferences(final List<Cloudlet> finished, final long simulatedEvents) {
+        final var finishTimes = new HashMap<Long, Double>();
+        finished.forEach(cloudlet -> finishTimes.put(cloudlet.getId(), cloudlet.getFinishTime()));
+
+        int compared = 0;
+        int missing = 0;
+        double maxDiff = 0;
+        long maxDiffCloudlet = -1;
+        for (final Timing timing : timings) {
+            final Double simulated = finishTimes.get(timing.cloudletId());
+            if (simulated == null || Double.isNaN(timing.finishTime())) {
+                if (simulated != null || !Double.isNaN(timing.finishTime())) {
+                    missing++;
+                }
+                continue;
+            }
+
+            compared++;
+            final double diff = Math.abs(simulated - timing.finishTime());
+            if (diff > maxDiff) {
+                maxDiff = diff;
+                maxDiffCloudlet = timing.cloudletId();
+            }
+        }
+
+        System.out.printf(
+            "%n%s fast-forward validation: %d Cloudlets compared, %d finished in just one of them, " +
+            "max finish time difference %.4f s (Cloudlet %d). %d simulation events vs %d fast-forward steps%n",
+            policy, compared, missing, maxDiff, maxDiffCloudlet, simulatedEvents, steps);
+    }
+}
@@ -0,0 +1,87 @@
+package org.cloudsimplus.com.traces;
+
+import ch.qos.logback.classic.Level;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.util.Log;
+import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the heap taken by each Cloudlet created as in {@link TaskEvents},
+ * with new utilization models for each Cloudlet (the default)
+ * and with {@link SharedUtilizationModels} (-Dtraces.cloudlets.compact=true).
+ * The compact mode is also measured after a task usage row is applied to every Cloudlet,
+ * when each one owns a copy of its RAM model (the worst case of copy-on-write).
+ *
+ * <p>The number of Cloudlets is given as the first argument (default 1,000,000).
+ * Requested RAM takes 1000 distinct values, as the normalized requests of the Google traces.
+ * The used heap is read after a full GC, so run it with a fixed heap (such as -Xms4g -Xmx4g)
+ * to get stable numbers.</p>
+ */
+public class CloudletFootprint {
+    private static final int DEFAULT_CLOUDLETS = 1_000_000;
+    private static final int DISTINCT_RAM_REQUESTS = 1000;
+    private static final long PES = 1;
+    private static final int LENGTH = -10_000;
+
+    private enum Mode { DEFAULT, COMPACT, COMPACT_AFTER_USAGE }
+
+    public static void main(String[] args) {
+        Log.setLevel(Level.WARN);
+        final int cloudlets = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLOUDLETS;
+        System.out.printf("%-20s %12s %14s %18s%n", "Mode", "Cloudlets", "Heap (MB)", "Bytes per Cloudlet");
+        final var bytesByMode = new double[Mode.values().length];
+        for (final Mode mode : Mode.values()) {
+            final double bytes = measure(mode, cloudlets);
+            bytesByMode[mode.ordinal()] = bytes;
+            System.out.printf("%-20s %12d %14.1f %18.1f%n", mode, cloudlets, bytes * cloudlets / 1024 / 1024, bytes);
+        }
+
+        final double saved = bytesByMode[Mode.DEFAULT.ordinal()] - bytesByMode[Mode.COMPACT.ordinal()];
+        System.out.printf("%nThe compact mode saves %.1f bytes per Cloudlet (%.1f%%) before usage rows are applied%n",
+            saved, saved * 100 / bytesByMode[Mode.DEFAULT.ordinal()]);
+    }
+
+    /** @return the heap taken by each Cloudlet created in a given mode */
+    private static double measure(final Mode mode, final int count) {
+        final long before = usedHeap();
+        final var sharedModels = new SharedUtilizationModels();
+        final var cloudlets = new Cloudlet[count];
+        final var usage = new TaskUsageRow(0, 0, 0, 0, -1, 0.5, 0.01, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        for (int i = 0; i < count; i++) {
+            final double maxRamUsagePercent = (i % DISTINCT_RAM_REQUESTS + 1) / (double) DISTINCT_RAM_REQUESTS;
+            cloudlets[i] = mode == Mode.DEFAULT ?
+                new CloudletSimple(LENGTH, PES)
+                    .setUtilizationModelCpu(new UtilizationModelFull())
+                    .setUtilizationModelBw(new UtilizationModelDynamic(0.25))
+                    .setUtilizationModelRam(new UtilizationModelDynamic(0, maxRamUsagePercent)) :
+                new CloudletSimple(LENGTH, PES)
+                    .setUtilizationModelCpu(sharedModels.full())
+                    .setUtilizationModelBw(sharedModels.dynamic(0.25, 1))
+                    .setUtilizationModelRam(sharedModels.dynamic(0, maxRamUsagePercent));
+            if (mode == Mode.COMPACT_AFTER_USAGE) {
+                TaskUsageUpdater.apply(cloudlets[i], usage);
+            }
+        }
+
+        final double bytes = (usedHeap() - before) / (double) count;
+        //Keeps the Cloudlets reachable until the heap is measured
+        if (cloudlets[count - 1] == null) {
+            throw new IllegalStateException();
+        }
+
+        return bytes;
+    }
+
+    private static long usedHeap() {
+        final var memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,314 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.builders.tables.CloudletsTableBuilder;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.listeners.CloudletVmEventInfo;
+import org.cloudsimplus.listeners.EventListener;
+import org.cloudsimplus.util.BytesConversion;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the results of finished Cloudlets to a CSV file while the simulation runs,
+ * instead of sorting the finished lists and rendering {@link CloudletsTableBuilder} tables at the end,
+ * which for hundreds of thousands of Cloudlets takes longer than the simulation itself.
+ *
+ * <p>When a tracked Cloudlet finishes, its results are copied into a batch of primitive arrays.
+ * Full batches are handed to a background thread that formats and writes them, and then reused,
+ * so no object is allocated per Cloudlet. If the writer falls behind, the simulation waits for a free batch.
+ * If the writer fails (such as when the file can't be created), its exception is thrown
+ * by the next wait instead of waiting forever.</p>
+ *
+ * <p>Rows are in finish order. Text tables become an optional view,
+ * either printed as before (with -Dtraces.results.tables=true) or from the file afterwards
+ * with {@link #main(String[]) CloudletResultSink <file> [max rows]}.</p>
+ */
+final class CloudletResultSink implements AutoCloseable {
+    /** The CSV file where the results are written, set with -Dtraces.results. If not set, no sink is used. */
+    static final String FILE = System.getProperty("traces.results");
+
+    /** Set with -Dtraces.results.tables=true to print the results tables even when they are written to {@link #FILE}. */
+    private static final boolean TABLES = Boolean.getBoolean("traces.results.tables");
+
+    private static final String HEADER =
+        "cloudlet_id,broker_id,job_id,vm_id,vm_size_mb,cloudlet_size_mb,pes,priority,waiting_time,start_time,finish_time,lifetime";
+    private static final int BATCH_SIZE = 4096;
+    private static final int BATCHES = 4;
+    /** How long to wait for the writer thread before checking if it has failed. */
+    private static final long WAIT_MILLIS = 100;
+
+    /** The results of up to {@link #BATCH_SIZE} Cloudlets. */
+    private static final class Batch {
+        final long[] cloudletIds;
+        final long[] brokerIds;
+        final long[] jobIds;
+        final long[] vmIds;
+        final long[] vmSizes;
+        final long[] cloudletSizes;
+        final long[] pes;
+        final int[] priorities;
+        final double[] waitingTimes;
+        final double[] startTimes;
+        final double[] finishTimes;
+        final double[] lifetimes;
+        int size;
+
+        Batch(final int capacity) {
+            cloudletIds = new long[capacity];
+            brokerIds = new long[capacity];
+            jobIds = new long[capacity];
+            vmIds = new long[capacity];
+            vmSizes = new long[capacity];
+            cloudletSizes = new long[capacity];
+            pes = new long[capacity];
+            priorities = new int[capacity];
+            waitingTimes = new double[capacity];
+            startTimes = new double[capacity];
+            finishTimes = new double[capacity];
+            lifetimes = new double[capacity];
+        }
+    }
+
+    /** Tells the writer thread there are no more batches. */
+    private static final Batch END = new Batch(0);
+
+    private final Path file;
+    private final BlockingQueue<Batch> full = new ArrayBlockingQueue<>(BATCHES + 1);
+    private final BlockingQueue<Batch> free = new ArrayBlockingQueue<>(BATCHES);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "cloudlet-results-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Future<Long> written;
+    private final EventListener<CloudletVmEventInfo> finishListener = info -> add(info.getCloudlet());
+    private Batch current;
+    private boolean closed;
+
+    /** @return true if the results tables should be printed, because there is no sink or they were asked for */
+    static boolean printTables() {
+        return FILE == null || TABLES;
+    }
+
+    /** @return a sink writing to {@link #FILE}, or null if it's not set */
+    static CloudletResultSink fromProperties() {
+        return FILE == null ? null : new CloudletResultSink(Path.of(FILE));
+    }
+
+    CloudletResultSink(final Path file) {
+        this.file = file;
+        for (int i = 0; i < BATCHES; i++) {
+            free.add(new Batch(BATCH_SIZE));
+        }
+
+        current = free.remove();
+        written = writer.submit(this::writeBatches);
+    }
+
+    /** Writes a row for the Cloudlet when it finishes. Can be called from any thread. */
+    void track(final Cloudlet cloudlet) {
+        cloudlet.addOnFinishListener(finishListener);
+    }
+
+    private synchronized void add(final Cloudlet cloudlet) {
+        if (closed) {
+            return;
+        }
+
+        final Batch batch = current;
+        final int row = batch.size++;
+        batch.cloudletIds[row] = cloudlet.getId();
+        batch.brokerIds[row] = cloudlet.getBroker().getId();
+        batch.jobIds[row] = cloudlet.getJobId();
+        batch.vmIds[row] = cloudlet.getVm().getId();
+        batch.vmSizes[row] = cloudlet.getVm().getStorage().getCapacity();
+        batch.cloudletSizes[row] = (long) BytesConversion.bytesToMegaBytes(cloudlet.getFileSize());
+        batch.pes[row] = cloudlet.getPesNumber();
+        batch.priorities[row] = cloudlet.getPriority();
+        batch.waitingTimes[row] = cloudlet.getCreationWaitTime();
+        batch.startTimes[row] = cloudlet.getStartTime();
+        batch.finishTimes[row] = cloudlet.getFinishTime();
+        batch.lifetimes[row] = cloudlet.getLifeTime();
+        if (batch.size == BATCH_SIZE) {
+            try {
+                handOff(batch);
+                current = takeFreeBatch();
+            } catch (RuntimeException e) {
+                //The writer has failed: later Cloudlets are ignored, since there is no batch to add them to
+                closed = true;
+                current = null;
+                throw e;
+            }
+        }
+    }
+
+    private void handOff(final Batch batch) {
+        try {
+            while (!full.offer(batch, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkWriter();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing results to the writer", e);
+        }
+    }
+
+    private Batch takeFreeBatch() {
+        try {
+            Batch batch;
+            while ((batch = free.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkWriter();
+            }
+
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the results writer", e);
+        }
+    }
+
+    /** Throws the failure of the writer thread if it has stopped, since it won't take or free any other batch. */
+    private void checkWriter() {
+        if (written.isDone()) {
+            waitForWriter();
+            throw new IllegalStateException("The Cloudlet results writer stopped before the end of the results");
+        }
+    }
+
+    /**
+     * Waits for the writer thread to finish and rethrows its failure.
+     * @return the number of rows written
+     */
+    private long waitForWriter() {
+        try {
+            return written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing the Cloudlet results", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Runs on the writer thread until the {@link #END} batch arrives. */
+    private long writeBatches() throws IOException, InterruptedException {
+        long rows = 0;
+        final var line = new StringBuilder(160);
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write(HEADER);
+            out.newLine();
+            for (Batch batch = full.take(); batch != END; batch = full.take()) {
+                for (int row = 0; row < batch.size; row++) {
+                    line.setLength(0);
+                    line.append(batch.cloudletIds[row]).append(',')
+                        .append(batch.brokerIds[row]).append(',')
+                        .append(batch.jobIds[row]).append(',')
+                        .append(batch.vmIds[row]).append(',')
+                        .append(batch.vmSizes[row]).append(',')
+                        .append(batch.cloudletSizes[row]).append(',')
+                        .append(batch.pes[row]).append(',')
+                        .append(batch.priorities[row]).append(',')
+                        .append(batch.waitingTimes[row]).append(',')
+                        .append(batch.startTimes[row]).append(',')
+                        .append(batch.finishTimes[row]).append(',')
+                        .append(batch.lifetimes[row]);
+                    out.append(line);
+                    out.newLine();
+                }
+
+                rows += batch.size;
+                batch.size = 0;
+                free.put(batch);
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Writes the remaining rows and waits for the writer thread to finish.
+     * Cloudlets finishing afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            handOff(current);
+            current = null;
+        }
+
+        try {
+            handOff(END);
+            final long rows = waitForWriter();
+            System.out.printf("%n%d Cloudlet results written to %s%n", rows, file);
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    /**
+     * Prints the first rows of a results file as a text table.
+     * @param args the results file and the maximum number of rows to print (50 by default)
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: CloudletResultSink <results file> [max rows]");
+            System.exit(1);
+        }
+
+        printTable(Path.of(args[0]), args.length > 1 ? Integer.parseInt(args[1]) : 50);
+    }
+
+    /**
+     * Prints the first rows of a results file as a text table.
+     * @param maxRows the maximum number of rows to print
+     */
+    static void printTable(final Path file, final int maxRows) {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            final String[] header = reader.readLine().split(",");
+            final int width = Arrays.stream(header).mapToInt(String::length).max().orElse(0) + 2;
+            final var format = ("%" + width + "s").repeat(header.length) + "%n";
+            System.out.printf(format, (Object[]) header);
+            String line;
+            int rows = 0;
+            while (rows < maxRows && (line = reader.readLine()) != null) {
+                final Object[] values = line.split(",");
+                for (int i = 0; i < values.length; i++) {
+                    if (((String) values[i]).contains(".")) {
+                        values[i] = String.format(Locale.ROOT, "%.2f", Double.parseDouble((String) values[i]));
+                    }
+                }
+
+                System.out.printf(format, values);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.schedulers.MipsShare;
+import org.cloudsimplus.schedulers.cloudlet.CloudletExecution;
+import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerCompletelyFair;
+import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerTimeShared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The same policy as {@link CloudletSchedulerCompletelyFair}
+ * (which is final, thus it can't be extended), for simulations with lots of Cloudlets.
+ *
+ * <p>{@link CloudletSchedulerCompletelyFair} sorts the whole waiting list each time it looks for
+ * a Cloudlet to run and sums the weights of all running Cloudlets each time it computes a time slice,
+ * so moving n waiting Cloudlets to execution costs O(n² log n).
+ * Here the waiting Cloudlets are kept in a {@link VirtualRuntimeQueue},
+ * so getting the next one takes O(log n), and the number of running Cloudlets of each priority is kept
+ * as they start and stop, so the weight sum takes O(distinct priorities).
+ * The remaining per-update work only goes through the running Cloudlets, which are at most the VM PEs.</p>
+ *
+ * <p>Waiting Cloudlets are ordered by virtual runtime, then priority, then ID.
+ * {@link CloudletSchedulerCompletelyFair} truncates the virtual runtime difference to an int
+ * before comparing, so the order may only differ for Cloudlets whose virtual runtimes are
+ * less than 1 apart (such as IDs above about 46000, whose initial virtual runtimes get that close).</p>
+ */
+public class CloudletSchedulerFastFair extends CloudletSchedulerTimeShared {
+    /** @see CloudletSchedulerCompletelyFair#getLatency() */
+    private static final int LATENCY = 3;
+
+    /** @see CloudletSchedulerCompletelyFair#getMinimumGranularity() */
+    private static final int MINIMUM_GRANULARITY = 2;
+
+    private final VirtualRuntimeQueue waitingQueue = new VirtualRuntimeQueue();
+
+    /** The number of running Cloudlets of each priority. */
+    private final Map<Integer, Integer> runningByPriority = new HashMap<>();
+    private int runningCount;
+    private double weightSum;
+    private boolean weightSumStale;
+
+    /** The number of waiting Cloudlets for each number of PEs, to know if any of them fits the free PEs. */
+    private final Map<Long, Integer> waitingByPes = new HashMap<>();
+    private long minWaitingPes = Long.MAX_VALUE;
+
+    @Override
+    protected double cloudletSubmitInternal(final CloudletExecution cle, final double fileTransferTime) {
+        cle.setVirtualRuntime(computeInitialVirtualRuntime(cle));
+        cle.setTimeSlice(computeTimeSlice(cle));
+        return super.cloudletSubmitInternal(cle, fileTransferTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return the shortest time slice among running Cloudlets
+     */
+    @Override
+    public double updateProcessing(final double currentTime, final MipsShare mipsShare) {
+        super.updateProcessing(currentTime, mipsShare);
+        double shortestTimeSlice = Double.MAX_VALUE;
+        for (final CloudletExecution cle : getCloudletExecList()) {
+            shortestTimeSlice = Math.min(shortestTimeSlice, cle.getTimeSlice());
+        }
+
+        return shortestTimeSlice;
+    }
+
+    @Override
+    protected double updateCloudletProcessing(final CloudletExecution cle, final double currentTime) {
+        if (cle.getVirtualRuntime() < 0) {
+            cle.setVirtualRuntime(0);
+        }
+
+        final double timeSpan = currentTime - cle.getLastProcessingTime();
+        final double partialFinishedMI = super.updateCloudletProcessing(cle, currentTime);
+        cle.addVirtualRuntime(timeSpan);
+        return partialFinishedMI;
+    }
+
+    /**
+     * Preempts the running Cloudlets whose virtual runtime reached their time slice,
+     * then runs the waiting Cloudlets with the lowest virtual runtimes.
+     * Preempted Cloudlets get their initial virtual runtime back afterwards, as in {@link CloudletSchedulerCompletelyFair}.
+     */
+    @Override
+    protected double moveNextCloudletsFromWaitingToExecList(final double currentTime) {
+        final List<CloudletExecution> preempted = preemptExpiredCloudlets();
+        final double nextFinishTime = super.moveNextCloudletsFromWaitingToExecList(currentTime);
+        for (final CloudletExecution cle : preempted) {
+            cle.setVirtualRuntime(computeInitialVirtualRuntime(cle));
+            waitingQueue.update(cle);
+        }
+
+        return nextFinishTime;
+    }
+
+    private List<CloudletExecution> preemptExpiredCloudlets() {
+        final var expired = new ArrayList<CloudletExecution>();
+        for (final CloudletExecution cle : getCloudletExecList()) {
+            if (cle.getVirtualRuntime() >= cle.getTimeSlice()) {
+                expired.add(cle);
+            }
+        }
+
+        for (final CloudletExecution cle : expired) {
+            removeCloudletFromExecList(cle);
+            addCloudletToWaitingList(cle);
+        }
+
+        return expired;
+    }
+
+    /**
+     * Gets the waiting Cloudlet with the lowest virtual runtime which fits the free PEs.
+     * Cloudlets skipped because they need more PEs are put back.
+     */
+    @Override
+    protected Optional<CloudletExecution> findSuitableWaitingCloudlet() {
+        if (minWaitingPes > getFreePes()) {
+            return Optional.empty();
+        }
+
+        final var skipped = new ArrayList<CloudletExecution>();
+        CloudletExecution found = null;
+        CloudletExecution cle;
+        while (found == null && (cle = waitingQueue.poll()) != null) {
+            if (cle.getCloudlet().getStatus() != Cloudlet.Status.QUEUED) {
+                //removed from the waiting list by other means, such as cancelling or pausing it
+                removeWaitingPes(cle);
+                continue;
+            }
+
+            skipped.add(cle);
+            if (canExecuteCloudletInternal(cle)) {
+                found = cle;
+            }
+        }
+
+        skipped.forEach(waitingQueue::add);
+        return Optional.ofNullable(found);
+    }
+
+    @Override
+    protected boolean canExecuteCloudletInternal(final CloudletExecution cle) {
+        return isThereEnoughFreePesForCloudlet(cle);
+    }
+
+    @Override
+    protected void addCloudletToWaitingList(final CloudletExecution cle) {
+        cle.setTimeSlice(computeTimeSlice(cle));
+        super.addCloudletToWaitingList(cle);
+        if (!waitingQueue.contains(cle)) {
+            waitingByPes.merge(cle.getPesNumber(), 1, Integer::sum);
+            minWaitingPes = Math.min(minWaitingPes, cle.getPesNumber());
+        }
+
+        waitingQueue.add(cle);
+    }
+
+    @Override
+    protected void addCloudletToExecList(final CloudletExecution cle) {
+        if (waitingQueue.remove(cle)) {
+            removeWaitingPes(cle);
+        }
+
+        cle.setTimeSlice(computeTimeSlice(cle));
+        super.addCloudletToExecList(cle);
+        changeRunning(cle, 1);
+    }
+
+    @Override
+    protected CloudletExecution removeCloudletFromExecList(final CloudletExecution cle) {
+        final int sizeBefore = getCloudletExecList().size();
+        final CloudletExecution removed = super.removeCloudletFromExecList(cle);
+        if (getCloudletExecList().size() < sizeBefore) {
+            changeRunning(cle, -1);
+        }
+
+        return removed;
+    }
+
+    private void removeWaitingPes(final CloudletExecution cle) {
+        final long pes = cle.getPesNumber();
+        final int count = waitingByPes.merge(pes, -1, Integer::sum);
+        if (count > 0) {
+            return;
+        }
+
+        waitingByPes.remove(pes);
+        if (pes == minWaitingPes) {
+            minWaitingPes = waitingByPes.keySet().stream().mapToLong(Long::longValue).min().orElse(Long.MAX_VALUE);
+        }
+    }
+
+    private void changeRunning(final CloudletExecution cle, final int delta) {
+        runningByPriority.merge(cle.getCloudlet().getPriority(), delta, Integer::sum);
+        runningCount += delta;
+        weightSumStale = true;
+    }
+
+    /**
+     * Gets the weight sum of the running Cloudlets from the number of Cloudlets of each priority.
+     * If the execution list was changed without going through this class, the counts are rebuilt from it.
+     */
+    private double getRunningWeightSum() {
+        final List<CloudletExecution> execList = getCloudletExecList();
+        if (runningCount != execList.size()) {
+            runningByPriority.clear();
+            execList.forEach(cle -> runningByPriority.merge(cle.getCloudlet().getPriority(), 1, Integer::sum));
+            runningCount = execList.size();
+            weightSumStale = true;
+        }
+
+        if (weightSumStale) {
+            weightSum = 0;
+            runningByPriority.forEach((priority, count) -> weightSum += count * getWeight(priority));
+            weightSumStale = false;
+        }
+
+        return weightSum;
+    }
+
+    /**
+     * Computes the time slice as {@link CloudletSchedulerCompletelyFair#computeCloudletTimeSlice(CloudletExecution)}:
+     * the latency share given by the Cloudlet weight, limited to the minimum granularity.
+     */
+    private double computeTimeSlice(final CloudletExecution cle) {
+        final double timeSlice = LATENCY * getWeight(cle.getCloudlet().getPriority()) / getRunningWeightSum();
+        return Math.min(timeSlice, MINIMUM_GRANULARITY);
+    }
+
+    /** @return the weight of a priority, where the niceness is the negated priority */
+    private static double getWeight(final int priority) {
+        return 1024 / Math.pow(1.25, -priority);
+    }
+
+    private static double computeInitialVirtualRuntime(final CloudletExecution cle) {
+        final double inverseOfCloudletId = Integer.MAX_VALUE / (cle.getCloudletId() + 1.0);
+        return -Math.abs(cle.getCloudlet().getPriority() + inverseOfCloudletId);
+    }
+}
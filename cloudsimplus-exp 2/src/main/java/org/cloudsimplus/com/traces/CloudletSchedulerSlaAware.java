@@ -0,0 +1,77 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.schedulers.cloudlet.CloudletExecution;
+import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerSpaceShared;
+
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * A space-shared scheduler that starts first the most urgent waiting Cloudlet,
+ * instead of the first one that arrived.
+ *
+ * <p>Urgency comes from the latest start time: the earliest of the time the Cloudlet breaches the maximum WaitTime
+ * and the time it can still start and finish within the maximum TaskCompletionTime (given its length and the VM MIPS).
+ * Both are counted from the Cloudlet arrival (its submission time plus its submission delay),
+ * as the {@link SlaContractEvaluator} does, not from the time it joined the waiting list.
+ * Among Cloudlets with the same latest start, the one with the highest priority comes first
+ * ({@link TaskEvents} sets it from the trace task priority, where higher values are more important).
+ * Since a waiting Cloudlet makes no progress, the latest start doesn't change while it waits,
+ * so the waiting Cloudlets are kept in a heap.
+ * If the most urgent Cloudlet doesn't fit the free PEs, the first waiting Cloudlet that fits is started,
+ * as in {@link CloudletSchedulerSpaceShared}.</p>
+ *
+ * <p>Trace Cloudlets all have the same length, so the latest start time follows the arrival order,
+ * and this scheduler reduces to FIFO with the priority breaking ties between Cloudlets arriving at the same time.
+ * Compared with the default time-shared scheduler of {@link TaskEvents}, most of the change in the SLA metrics
+ * comes from running Cloudlets space-shared (so they wait instead of sharing PEs), not from the ordering.</p>
+ *
+ * @see SlaContractEvaluator
+ */
+final class CloudletSchedulerSlaAware extends CloudletSchedulerSpaceShared {
+    private record Entry(CloudletExecution cle, int priority, double latestStart, long serial) {}
+
+    private final SlaContractEvaluator sla;
+    private final double maxWaitTime;
+    private final double maxCompletionTime;
+    private final PriorityQueue<Entry> waiting = new PriorityQueue<>(
+        Comparator.comparingDouble(Entry::latestStart)
+            .thenComparing(Comparator.comparingInt(Entry::priority).reversed())
+            .thenComparingLong(Entry::serial));
+    private long serial;
+
+    /**
+     * @param sla the evaluator with the maximum WaitTime and TaskCompletionTime of the SLA,
+     *            which also tracks the arrival of the Cloudlets
+     */
+    CloudletSchedulerSlaAware(final SlaContractEvaluator sla) {
+        this.sla = sla;
+        this.maxWaitTime = sla.getBounds(SlaContractEvaluator.Metric.WAIT_TIME).max();
+        this.maxCompletionTime = sla.getBounds(SlaContractEvaluator.Metric.TASK_COMPLETION_TIME).max();
+    }
+
+    @Override
+    protected void addCloudletToWaitingList(final CloudletExecution cle) {
+        super.addCloudletToWaitingList(cle);
+        final double arrival = sla.getArrival(cle.getCloudlet(), getVm().getSimulation().clock());
+        final double executionTime = cle.getCloudletLength() / getVm().getMips();
+        final double latestStart = arrival + Math.min(maxWaitTime, maxCompletionTime - executionTime);
+        waiting.add(new Entry(cle, cle.getCloudlet().getPriority(), latestStart, serial++));
+    }
+
+    @Override
+    protected Optional<CloudletExecution> findSuitableWaitingCloudlet() {
+        //Drops the Cloudlets that already left the waiting list
+        while (!waiting.isEmpty() && waiting.peek().cle().getCloudlet().getStatus() != Cloudlet.Status.QUEUED) {
+            waiting.poll();
+        }
+
+        if (!waiting.isEmpty() && isThereEnoughFreePesForCloudlet(waiting.peek().cle())) {
+            return Optional.of(waiting.poll().cle());
+        }
+
+        return super.findSuitableWaitingCloudlet();
+    }
+}
@@ -13,7 +13,6 @@ import org.cloudsimplus.hosts.Host;
 import org.cloudsimplus.hosts.HostSimple;
 import org.cloudsimplus.resources.Pe;
 import org.cloudsimplus.resources.PeSimple;
-import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerCompletelyFair;
 import org.cloudsimplus.schedulers.vm.VmSchedulerTimeShared;
 import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
 import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
@@ -33,6 +32,12 @@ public class CompletelyFairSchedulerUpdated {
     private static final int NUM_CLOUDLETS = HOST_PES * 2;
     private static final int CLOUDLET_PES = 1;
     private static final int CLOUDLET_LEN = 10000; // in MI
+
+    /**
+     * The {@link SchedulerType} of the VMs, set with -Dcfs.scheduler.
+     * Use FAST_FAIR to run the same policy with {@link CloudletSchedulerFastFair}.
+     */
+    private static final SchedulerType SCHEDULER = SchedulerType.valueOf(System.getProperty("cfs.scheduler", "COMPLETELY_FAIR"));
     private final CloudSimPlus simulation;
     private List<Cloudlet> cloudletList;
     private List<Vm> vmList;
@@ -61,13 +66,24 @@ public class CompletelyFairSchedulerUpdated {
             cloudletList.get(i).setPriority(4);
         }
 
+        final var results = CloudletResultSink.fromProperties();
+        if (results != null) {
+            cloudletList.forEach(results::track);
+        }
+
         simulation.start();
 
+        if (results != null) {
+            results.close();
+        }
         final var cloudletFinishedList = broker0.getCloudletFinishedList();
-        new CloudletsTableBuilder(cloudletFinishedList)
-                .addColumn(new TextTableColumn("Priority"), Cloudlet::getPriority, 2)
-                .addColumn(new TextTableColumn("LifeTime"), Cloudlet::getLifeTime, 4)
-                .build();
+        if (CloudletResultSink.printTables()) {
+            new CloudletsTableBuilder(cloudletFinishedList)
+                    .addColumn(new TextTableColumn("Priority"), Cloudlet::getPriority, 2)
+                    .addColumn(new TextTableColumn("LifeTime"), Cloudlet::getLifeTime, 4)
+                    .build();
+        }
+        ResultChecksum.print(cloudletFinishedList);
         System.out.println(getClass().getSimpleName() + " finished!");
     }
 
@@ -122,7 +138,7 @@ public class CompletelyFairSchedulerUpdated {
 
         return new VmSimple(numberOfCreatedVms++, VM_MIPS, VM_PES)
                 .setRam(ram).setBw(bw).setSize(storage)
-                .setCloudletScheduler(new CloudletSchedulerCompletelyFair());
+                .setCloudletScheduler(SCHEDULER.newScheduler());
     }
 
     private Cloudlet createCloudlet(DatacenterBroker broker) {
@@ -0,0 +1,301 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.core.CloudSimTag;
+import org.cloudsimplus.core.SimEntity;
+import org.cloudsimplus.core.events.SimEvent;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.vms.Vm;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Records the simulation events into a binary file, as a structured replacement for TRACE logging,
+ * which formats a message for every event on the simulation thread.
+ *
+ * <p>Each recorded event is encoded as a fixed-size record (time, tag, source and destination entity IDs,
+ * the event serial and the ID of the Cloudlet, VM or Host the event carries, if any) into a ring of buffers. Full buffers are written to the file by a background thread.
+ * If the writer falls behind and the ring is full, events are dropped (and counted) instead of slowing
+ * the simulation down.</p>
+ *
+ * <p>Events can be filtered by tag (-Dtraces.eventtrace.tags, a comma-separated list of {@link CloudSimTag} names),
+ * by entity (-Dtraces.eventtrace.entities, a comma-separated list of IDs matching the source or destination),
+ * by time window (-Dtraces.eventtrace.from and -Dtraces.eventtrace.to, in seconds)
+ * and sampled (-Dtraces.eventtrace.sample, recording one of every N matching events).
+ * The file can be read back with {@link #main(String[]) EventTraceRecorder <file> [max events]}.</p>
+ */
+final class EventTraceRecorder implements AutoCloseable {
+    /** The file where the events are recorded, set with -Dtraces.eventtrace. If not set, no events are recorded. */
+    static final String FILE = System.getProperty("traces.eventtrace");
+
+    private static final int MAGIC = 0x43535452; // "CSTR"
+    private static final int VERSION = 2;
+    /** time (8) + tag (2) + source (8) + destination (8) + serial (8) + payload type (1) + payload ID (8) */
+    private static final int RECORD_BYTES = 43;
+
+    /** The types of event payload whose ID is recorded, indexed by the payload type byte. */
+    private static final String[] PAYLOAD_TYPES = {"-", "Cloudlet", "Vm", "Host"};
+    private static final int BUFFER_BYTES = RECORD_BYTES * 4096;
+    private static final int BUFFERS = 8;
+
+    private final Path file;
+    private final Set<CloudSimTag> tags;
+    private final long[] entities;
+    private final double from;
+    private final double to;
+    private final int sampling;
+
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFERS + 1);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "event-trace-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Future<Long> written;
+    /** Tells the writer thread there are no more buffers. */
+    private final ByteBuffer end = ByteBuffer.allocate(0);
+    private ByteBuffer current;
+
+    private long matched;
+    private long recorded;
+    private long dropped;
+
+    /** @return a recorder writing to {@link #FILE} with the filters given by the system properties, or null if it's not set */
+    static EventTraceRecorder fromProperties() {
+        if (FILE == null) {
+            return null;
+        }
+
+        final String tagNames = System.getProperty("traces.eventtrace.tags", "");
+        final Set<CloudSimTag> tags = tagNames.isBlank() ?
+            EnumSet.allOf(CloudSimTag.class) :
+            Arrays.stream(tagNames.split(",")).map(String::trim).map(CloudSimTag::valueOf)
+                  .collect(Collectors.toCollection(() -> EnumSet.noneOf(CloudSimTag.class)));
+        final String entityIds = System.getProperty("traces.eventtrace.entities", "");
+        final long[] entities = entityIds.isBlank() ?
+            new long[0] :
+            Arrays.stream(entityIds.split(",")).map(String::trim).mapToLong(Long::parseLong).sorted().toArray();
+
+        return new EventTraceRecorder(
+            Path.of(FILE), tags, entities,
+            Double.parseDouble(System.getProperty("traces.eventtrace.from", "0")),
+            Double.parseDouble(System.getProperty("traces.eventtrace.to", "Infinity")),
+            Integer.getInteger("traces.eventtrace.sample", 1));
+    }
+
+    /**
+     * @param tags the tags of the events to record
+     * @param entities the IDs of the entities whose events are recorded, or an empty array to record all entities
+     * @param from the time the recording starts (in seconds)
+     * @param to the time the recording stops (in seconds)
+     * @param sampling records one of every {@code sampling} events matching the filters
+     */
+    EventTraceRecorder(
+        final Path file, final Set<CloudSimTag> tags, final long[] entities,
+        final double from, final double to, final int sampling)
+    {
+        if (sampling < 1) {
+            throw new IllegalArgumentException("The sampling must be at least 1");
+        }
+
+        this.file = file;
+        this.tags = EnumSet.copyOf(tags);
+        this.entities = entities.clone();
+        Arrays.sort(this.entities);
+        this.from = from;
+        this.to = to;
+        this.sampling = sampling;
+        for (int i = 0; i < BUFFERS; i++) {
+            free.add(ByteBuffer.allocateDirect(BUFFER_BYTES));
+        }
+
+        current = free.remove();
+        written = writer.submit(this::writeBuffers);
+    }
+
+    /** Records the events of a simulation. Must be called before the simulation starts. */
+    void attach(final CloudSimPlus simulation) {
+        simulation.addOnEventProcessingListener(this::onEventProcessing);
+    }
+
+    private void onEventProcessing(final SimEvent evt) {
+        if (!matches(evt) || matched++ % sampling != 0) {
+            return;
+        }
+
+        if (current == null && (current = free.poll()) == null) {
+            dropped++;
+            return;
+        }
+
+        current.putDouble(evt.getTime())
+               .putShort((short) evt.getTag().ordinal())
+               .putLong(idOf(evt.getSource()))
+               .putLong(idOf(evt.getDestination()))
+               .putLong(evt.getSerial());
+        putPayload(evt.getData());
+        recorded++;
+        if (current.remaining() < RECORD_BYTES) {
+            handOff();
+        }
+    }
+
+    private boolean matches(final SimEvent evt) {
+        return evt.getTime() >= from && evt.getTime() <= to && tags.contains(evt.getTag()) &&
+               (entities.length == 0 ||
+                Arrays.binarySearch(entities, idOf(evt.getSource())) >= 0 ||
+                Arrays.binarySearch(entities, idOf(evt.getDestination())) >= 0);
+    }
+
+    /** Encodes the type and ID of the Cloudlet, VM or Host an event carries (other payloads are recorded as none). */
+    private void putPayload(final Object data) {
+        if (data instanceof Cloudlet cloudlet) {
+            current.put((byte) 1).putLong(cloudlet.getId());
+        } else if (data instanceof Vm vm) {
+            current.put((byte) 2).putLong(vm.getId());
+        } else if (data instanceof Host host) {
+            current.put((byte) 3).putLong(host.getId());
+        } else {
+            current.put((byte) 0).putLong(-1);
+        }
+    }
+
+    private static long idOf(final SimEntity entity) {
+        return entity == null ? -1 : entity.getId();
+    }
+
+    /** Hands the current buffer to the writer. Never blocks, since there is room in the queue for every buffer. */
+    private void handOff() {
+        full.add(current.flip());
+        current = null;
+    }
+
+    /** Runs on the writer thread until the {@link #end} buffer arrives. */
+    private long writeBuffers() throws IOException, InterruptedException {
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final var header = ByteBuffer.allocate(1024);
+            header.putInt(MAGIC).putInt(VERSION).putShort((short) CloudSimTag.values().length);
+            for (final CloudSimTag tag : CloudSimTag.values()) {
+                final byte[] name = tag.name().getBytes();
+                header.putShort((short) name.length).put(name);
+            }
+
+            writeFully(channel, header.flip());
+            for (ByteBuffer buffer = full.take(); buffer != end; buffer = full.take()) {
+                bytes += writeFully(channel, buffer);
+                free.put(buffer.clear());
+            }
+        }
+
+        return bytes / RECORD_BYTES;
+    }
+
+    private static int writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        final int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        return bytes;
+    }
+
+    /** Writes the remaining events and waits for the writer thread to finish. */
+    @Override
+    public void close() {
+        if (current != null && current.position() > 0) {
+            handOff();
+        }
+
+        try {
+            full.add(end);
+            written.get();
+            System.out.printf(
+                "%nEvent trace: %d events matched the filters, %d recorded to %s, %d dropped because the writer fell behind%n",
+                matched, recorded, file, dropped);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing the event trace", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    /**
+     * Prints the events recorded in a file, one per line.
+     * @param args the event trace file and the maximum number of events to print (all by default)
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: EventTraceRecorder <event trace file> [max events]");
+            System.exit(1);
+        }
+
+        print(Path.of(args[0]), args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE);
+    }
+
+    /**
+     * Prints the events recorded in a file, one per line.
+     * @param maxEvents the maximum number of events to print
+     */
+    static void print(final Path file, final long maxEvents) {
+        try (var in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalArgumentException(file + " is not an event trace file");
+            }
+
+            final var tagNames = new String[in.readShort()];
+            for (int i = 0; i < tagNames.length; i++) {
+                tagNames[i] = new String(in.readNBytes(in.readShort()));
+            }
+
+            System.out.printf("%14s %-32s %10s %10s %12s %-8s %10s%n",
+                "Time", "Tag", "Source", "Destination", "Serial", "Payload", "Payload ID");
+            for (long i = 0; i < maxEvents; i++) {
+                final double time;
+                try {
+                    time = in.readDouble();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                System.out.printf("%14.2f %-32s %10d %10d %12d %-8s %10d%n",
+                    time, tagNames[in.readShort()], in.readLong(), in.readLong(), in.readLong(),
+                    PAYLOAD_TYPES[in.readByte()], in.readLong());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.cloudsimplus.com.traces;
+
+import java.util.SplittableRandom;
+
+/**
+ * The random source of the experiments, seeded with -Dexperiment.seed (default 0),
+ * so that runs are reproducible and a baseline and an optimized run get the same inputs.
+ *
+ * <p>Each independent part of an experiment (such as each point of a {@link SchedulerSweep})
+ * takes its own stream by index, instead of sharing a generator or splitting one in the order threads ask for it.
+ * That way, the numbers each part gets don't depend on how many threads run or on their timing.
+ * The seed and the index are hashed together, so different seeds don't share streams.</p>
+ */
+final class ExperimentRandom {
+    /** The seed of all experiments, set with -Dexperiment.seed. */
+    static final long SEED = Long.getLong("experiment.seed", 0);
+
+    private ExperimentRandom() {/**/}
+
+    /**
+     * @param stream the index of an independent part of the experiment
+     * @return a new generator for that part, which gives the same numbers for the same {@link #SEED} and index
+     */
+    static SplittableRandom stream(final long stream) {
+        //SEED + stream would give seed 1 the streams of seed 0 shifted by one
+        return new SplittableRandom(mix64(mix64(SEED) ^ stream));
+    }
+
+    /** The SplitMix64 finalizer, a bijection that spreads close values far apart. */
+    private static long mix64(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,84 @@
+package org.cloudsimplus.com.traces;
+
+import ch.qos.logback.classic.Level;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that {@link CloudletSchedulerFastFair} gives the same results as
+ * {@link org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerCompletelyFair}.
+ * It runs the {@link SchedulerSweep} setup (where the first half of the Cloudlets has priority 4
+ * and the other half priority 0) with both schedulers, including the setups of
+ * {@link CompletelyFairScheduler} and {@link CompletelyFairSchedulerUpdated},
+ * and compares the finish time of each Cloudlet.
+ *
+ * <p>The relative tolerance is set with -Dcfs.tolerance (default 0.01).
+ * The process exits with status 1 if any setup is out of tolerance.</p>
+ */
+public class FairSchedulerComparison {
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("cfs.tolerance", "0.01"));
+
+    /** Hosts, Cloudlets and PEs of each setup. */
+    private static final int[][] SETUPS = {
+        {2, 32, 16}, // CompletelyFairScheduler
+        {1, 12, 6}, // CompletelyFairSchedulerUpdated
+        {1, 100, 4},
+        {2, 1000, 16},
+    };
+
+    private static final int SEEDS = 3;
+
+    public static void main(String[] args) {
+        Log.setLevel(Level.WARN);
+        System.out.printf("%5s %9s %4s %4s | %13s %13s | %13s %10s %s%n",
+            "Hosts", "Cloudlets", "PEs", "Seed", "Makespan CFS", "Makespan fast", "Max diff (s)", "Max diff %", "Result");
+
+        boolean allWithinTolerance = true;
+        for (final int[] setup : SETUPS) {
+            for (long seed = 0; seed < SEEDS; seed++) {
+                allWithinTolerance &= compare(setup[0], setup[1], setup[2], seed);
+            }
+        }
+
+        System.out.println(allWithinTolerance ? "All setups within tolerance" : "Some setups are out of tolerance");
+        if (!allWithinTolerance) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean compare(final int hosts, final int cloudlets, final int pes, final long seed) {
+        final List<Cloudlet> expected = SchedulerSweep.simulate(new SchedulerSweep.SweepPoint(SchedulerType.COMPLETELY_FAIR, hosts, cloudlets, pes, seed));
+        final List<Cloudlet> actual = SchedulerSweep.simulate(new SchedulerSweep.SweepPoint(SchedulerType.FAST_FAIR, hosts, cloudlets, pes, seed));
+
+        final Map<Long, Double> expectedFinishTimes = new HashMap<>();
+        expected.forEach(cloudlet -> expectedFinishTimes.put(cloudlet.getId(), cloudlet.getFinishTime()));
+
+        double maxDiff = 0;
+        double maxRelativeDiff = 0;
+        for (final Cloudlet cloudlet : actual) {
+            final Double expectedFinishTime = expectedFinishTimes.get(cloudlet.getId());
+            if (expectedFinishTime == null) {
+                maxRelativeDiff = Double.POSITIVE_INFINITY;
+                continue;
+            }
+
+            final double diff = Math.abs(cloudlet.getFinishTime() - expectedFinishTime);
+            maxDiff = Math.max(maxDiff, diff);
+            maxRelativeDiff = Math.max(maxRelativeDiff, diff / Math.max(expectedFinishTime, 1));
+        }
+
+        final boolean withinTolerance = expected.size() == actual.size() && maxRelativeDiff <= TOLERANCE;
+        System.out.printf("%5d %9d %4d %4d | %13.2f %13.2f | %13.4f %10.4f %s%n",
+            hosts, cloudlets, pes, seed, makespan(expected), makespan(actual), maxDiff, maxRelativeDiff * 100,
+            withinTolerance ? "OK" : "DIFFERENT");
+        return withinTolerance;
+    }
+
+    private static double makespan(final List<Cloudlet> cloudlets) {
+        return cloudlets.stream().mapToDouble(Cloudlet::getFinishTime).max().orElse(0);
+    }
+}
@@ -0,0 +1,92 @@
+package org.cloudsimplus.com.traces;
+
+import java.util.Arrays;
+
+/**
+ * A {@link JobEntryTable} storing each column in a primitive array on the Java heap.
+ * The arrays grow by 50% when full, so the only garbage is the replaced arrays.
+ */
+final class HeapJobEntryTable implements JobEntryTable {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] jobIDs;
+    private int[] taskIndexes;
+    private int[] machineIDs;
+    private double[] rams;
+    private int size;
+
+    HeapJobEntryTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    HeapJobEntryTable(final int capacity) {
+        final int initial = Math.max(capacity, 1);
+        jobIDs = new int[initial];
+        taskIndexes = new int[initial];
+        machineIDs = new int[initial];
+        rams = new double[initial];
+    }
+
+    @Override
+    public void add(final int jobID, final int taskIndex, final int machineID, final double ram) {
+        if (size == jobIDs.length) {
+            grow();
+        }
+
+        jobIDs[size] = jobID;
+        taskIndexes[size] = taskIndex;
+        machineIDs[size] = machineID;
+        rams[size] = ram;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int jobID(final int row) {
+        return jobIDs[checkRow(row)];
+    }
+
+    @Override
+    public int taskIndex(final int row) {
+        return taskIndexes[checkRow(row)];
+    }
+
+    @Override
+    public int machineID(final int row) {
+        return machineIDs[checkRow(row)];
+    }
+
+    @Override
+    public double ram(final int row) {
+        return rams[checkRow(row)];
+    }
+
+    @Override
+    public JobEntryTable newTable(final int capacity) {
+        return new HeapJobEntryTable(capacity);
+    }
+
+    private int checkRow(final int row) {
+        if (row >= size) {
+            throw new IndexOutOfBoundsException("Row %d out of bounds for size %d".formatted(row, size));
+        }
+
+        return row;
+    }
+
+    private void grow() {
+        final int capacity = (int) Math.min(Integer.MAX_VALUE - 8, jobIDs.length + (jobIDs.length >> 1) + 1L);
+        if (capacity == jobIDs.length) {
+            throw new IllegalStateException("The table is full");
+        }
+
+        jobIDs = Arrays.copyOf(jobIDs, capacity);
+        taskIndexes = Arrays.copyOf(taskIndexes, capacity);
+        machineIDs = Arrays.copyOf(machineIDs, capacity);
+        rams = Arrays.copyOf(rams, capacity);
+    }
+}
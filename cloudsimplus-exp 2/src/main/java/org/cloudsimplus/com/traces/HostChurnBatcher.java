@@ -0,0 +1,112 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.core.CloudSimTag;
+import org.cloudsimplus.core.events.SimEvent;
+import org.cloudsimplus.datacenters.Datacenter;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.listeners.HostEventInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces the Hosts that become available in a Datacenter at the same simulation instant
+ * (such as the machine ADD events sharing a timestamp in a Google machine events trace)
+ * into a single batch, so that their VMs and Cloudlets can be submitted once per batch,
+ * instead of triggering a broker round for each Host.
+ *
+ * <p>When the first Host of an instant arrives, a zero-delay {@link CloudSimTag#NONE} event,
+ * which the Datacenter ignores, is sent to it as a flush marker.
+ * Since events at the same time are processed in the order they were sent, it's only processed after the
+ * Host additions already scheduled for that instant, and then the batch is handed to the consumer.
+ * Without batching, each Host is handed to the consumer as soon as it becomes available.
+ * Host removals are only counted, since the Datacenter itself handles the VMs of removed Hosts.</p>
+ */
+final class HostChurnBatcher {
+    private final Datacenter datacenter;
+    private final Consumer<List<Host>> batchConsumer;
+    private final boolean batching;
+    private final Object flushMarker = new Object();
+    private List<Host> pending = new ArrayList<>();
+
+    /** The number of times the consumer was called, each one submitting VMs and Cloudlets to the broker. */
+    private long brokerRounds;
+    private long addedHosts;
+    private long removedHosts;
+    private long removalInstants;
+    private double lastRemovalTime = -1;
+    private int largestBatch;
+
+    /**
+     * @param batchConsumer receives the Hosts that became available at the same instant
+     *                      (or each Host alone, without batching)
+     * @param batching whether to coalesce the Hosts of each instant, or to hand each one to the consumer at once
+     *                 (to measure the broker rounds batching saves)
+     */
+    HostChurnBatcher(
+        final CloudSimPlus simulation, final Datacenter datacenter,
+        final Consumer<List<Host>> batchConsumer, final boolean batching)
+    {
+        this.datacenter = datacenter;
+        this.batchConsumer = batchConsumer;
+        this.batching = batching;
+        datacenter.addOnHostAvailableListener(this::onHostAvailable);
+        simulation.addOnEventProcessingListener(this::onEventProcessing);
+    }
+
+    private void onHostAvailable(final HostEventInfo info) {
+        if (!batching) {
+            consume(List.of(info.getHost()));
+            return;
+        }
+
+        if (pending.isEmpty()) {
+            datacenter.schedule(0, CloudSimTag.NONE, flushMarker);
+        }
+
+        pending.add(info.getHost());
+    }
+
+    private void onEventProcessing(final SimEvent evt) {
+        if (evt.getTag() == CloudSimTag.NONE && evt.getData() == flushMarker) {
+            flush();
+        } else if (evt.getTag() == CloudSimTag.HOST_REMOVE && evt.getDestination() == datacenter) {
+            removedHosts++;
+            if (evt.getTime() != lastRemovalTime) {
+                removalInstants++;
+                lastRemovalTime = evt.getTime();
+            }
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final List<Host> batch = pending;
+        pending = new ArrayList<>();
+        consume(batch);
+    }
+
+    private void consume(final List<Host> hosts) {
+        brokerRounds++;
+        addedHosts += hosts.size();
+        largestBatch = Math.max(largestBatch, hosts.size());
+        batchConsumer.accept(hosts);
+    }
+
+    /**
+     * Prints how many Hosts were added and removed and the broker rounds counted while the simulation ran,
+     * along with the rounds batching saved: without batching, each added Host takes a round of its own.
+     */
+    void printSummary() {
+        System.out.printf(
+            "%nHost churn (batching %s): %d Hosts added in %d broker rounds (largest with %d Hosts, %d rounds saved), " +
+            "%d Hosts removed at %d instants%n",
+            batching ? "on" : "off", addedHosts, brokerRounds, largestBatch, addedHosts - brokerRounds,
+            removedHosts, removalInstants);
+    }
+}
@@ -0,0 +1,352 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * The row with the maximum RAM for each jobID, kept in an open-addressing table
+ * inside a memory-mapped state file, together with the input file offset consumed so far.
+ * Each {@link #refresh(Path, LongFunction)} reads just the bytes appended to the input since the last one
+ * and writes a delta file with the jobs whose row has changed,
+ * so a refresh costs O(new rows) instead of O(all rows).
+ *
+ * <p>Rows are accumulated as in {@link JobMaxRamMap}: when two rows of the same job have the same RAM,
+ * the first one is kept. A job is part of the delta only if it's new or its maximum RAM grew,
+ * so rows repeating the stored one are not reported.
+ * The delta is written before any job of the table changes,
+ * and its number of jobs and the input offset it covers are saved in the header.
+ * Since accumulating a row twice doesn't change the result,
+ * the offset is checkpointed only after the table is safely written.
+ * If a refresh is interrupted before the delta is saved, the next one writes it again.
+ * If it's interrupted afterwards, the next one first completes it, keeping its delta and accumulating
+ * again just the rows up to the saved offset. The rows appended after that go through a new refresh, with its own delta.</p>
+ *
+ * <p>The input must only grow by appending lines.
+ * A last line without a line break is left for the next refresh.</p>
+ */
+final class IncrementalMaxRamState implements AutoCloseable {
+    /**
+     * The result of a refresh.
+     * @param rowsRead the number of new rows read
+     * @param bytesRead the number of new bytes read
+     * @param changedJobs the number of jobs written to the delta file
+     */
+    record Refresh(long run, long rowsRead, long bytesRead, int changedJobs, Path deltaFile) {}
+
+    /** "MRS2" */
+    private static final int MAGIC = 0x4D525332;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int SIZE_OFFSET = 8;
+    /** The number of jobs in the delta of the refresh in progress plus one, or 0 if its delta isn't saved yet. */
+    private static final int PENDING_DELTA_OFFSET = 12;
+    private static final int INPUT_OFFSET = 16;
+    private static final int REFRESHES_OFFSET = 24;
+    /** The input offset covered by the saved delta of the refresh in progress. */
+    private static final int PENDING_END_OFFSET = 32;
+    private static final int HEADER_BYTES = 40;
+
+    private static final int TASK_INDEX_OFFSET = 4;
+    private static final int MACHINE_ID_OFFSET = 8;
+    private static final int USED_OFFSET = 12;
+    private static final int RAM_OFFSET = 16;
+    private static final int SLOT_BYTES = 24;
+
+    private static final int MAX_CAPACITY = Integer.highestOneBit((Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES);
+
+    private final Path stateFile;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+    private int mask;
+
+    private IncrementalMaxRamState(final Path stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Opens a state file, creating an empty state if it doesn't exist.
+     */
+    static IncrementalMaxRamState open(final Path stateFile) {
+        final var state = new IncrementalMaxRamState(stateFile);
+        try {
+            if (Files.exists(stateFile) && Files.size(stateFile) > 0) {
+                state.map(Files.size(stateFile));
+                state.readHeader();
+            } else {
+                state.create(stateFile, INITIAL_CAPACITY);
+            }
+
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Accumulates the rows appended to the input file since the last refresh
+     * and writes the jobs that changed to the delta file, in ascending jobID order.
+     * The delta file is written even if no job changed.
+     * If the last refresh was interrupted after saving its delta, it's completed first.
+     * @param deltaFileOfRun gets the delta file of a refresh from its run number (starting at 1)
+     * @return the completed interrupted refresh (if any) and the new one
+     */
+    List<Refresh> refresh(final Path inputFile, final LongFunction<Path> deltaFileOfRun) {
+        try {
+            if (Files.size(inputFile) < getInputOffset()) {
+                throw new IllegalStateException(
+                    "%s is smaller than the %d bytes already consumed. Delete %s to start over."
+                        .formatted(inputFile, getInputOffset(), stateFile));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final var refreshes = new ArrayList<Refresh>(2);
+        if (buffer.getInt(PENDING_DELTA_OFFSET) != 0) {
+            refreshes.add(completePending(inputFile, deltaFileOfRun));
+        }
+
+        final long run = getRefreshes() + 1;
+        final long offset = getInputOffset();
+        final Path deltaFile = deltaFileOfRun.apply(run);
+        final var newRows = new JobMaxRamMap();
+        final long[] rows = {0};
+        final long end = JobCsvParser.parseCompleteLines(inputFile, offset, (jobID, taskIndex, machineID, ram) -> {
+            newRows.accumulate(jobID, taskIndex, machineID, ram);
+            rows[0]++;
+        });
+
+        final int changedJobs = writeDelta(newRows, deltaFile);
+        buffer.putLong(PENDING_END_OFFSET, end);
+        buffer.putInt(PENDING_DELTA_OFFSET, changedJobs + 1);
+        buffer.force();
+
+        checkpoint(newRows, end);
+        refreshes.add(new Refresh(run, rows[0], end - offset, changedJobs, deltaFile));
+        return refreshes;
+    }
+
+    /**
+     * Completes a refresh interrupted after its delta was saved,
+     * accumulating again just the rows its delta covers.
+     */
+    private Refresh completePending(final Path inputFile, final LongFunction<Path> deltaFileOfRun) {
+        final long offset = getInputOffset();
+        final long end = buffer.getLong(PENDING_END_OFFSET);
+        final var pendingRows = new JobMaxRamMap();
+        final long[] rows = {0};
+        JobCsvParser.parseCompleteLines(inputFile, offset, end, (jobID, taskIndex, machineID, ram) -> {
+            pendingRows.accumulate(jobID, taskIndex, machineID, ram);
+            rows[0]++;
+        });
+
+        final long run = getRefreshes() + 1;
+        final int changedJobs = buffer.getInt(PENDING_DELTA_OFFSET) - 1;
+        checkpoint(pendingRows, end);
+        return new Refresh(run, rows[0], end - offset, changedJobs, deltaFileOfRun.apply(run));
+    }
+
+    /** Accumulates the rows of a refresh whose delta is saved, then saves the input offset they end at. */
+    private void checkpoint(final JobMaxRamMap rows, final long end) {
+        rows.forEachSorted(this::accumulate);
+
+        //The offset is only saved after the rows it covers
+        buffer.force();
+        buffer.putLong(INPUT_OFFSET, end);
+        buffer.putLong(REFRESHES_OFFSET, getRefreshes() + 1);
+        buffer.putInt(PENDING_DELTA_OFFSET, 0);
+        buffer.force();
+    }
+
+    /**
+     * Writes the jobs whose best new row would change the table (since the job is new or has more RAM)
+     * to the delta file and forces it to disk. The table is not changed.
+     * @return the number of jobs written
+     */
+    private int writeDelta(final JobMaxRamMap newRows, final Path deltaFile) {
+        final int[] changedJobs = {0};
+        try (BufferedWriter writer = Files.newBufferedWriter(deltaFile)) {
+            newRows.forEachSorted((jobID, taskIndex, machineID, ram) -> {
+                final int slot = slotOf(jobID);
+                if (!isUsed(slot) || ram > buffer.getDouble(offsetOf(slot) + RAM_OFFSET)) {
+                    try {
+                        writer.write(jobID + "," + taskIndex + "," + machineID + "," + ram);
+                        writer.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    changedJobs[0]++;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try (var deltaChannel = FileChannel.open(deltaFile, StandardOpenOption.WRITE)) {
+            deltaChannel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return changedJobs[0];
+    }
+
+    /** @return the number of input bytes consumed so far */
+    long getInputOffset() {
+        return buffer.getLong(INPUT_OFFSET);
+    }
+
+    /** @return the number of refreshes done since the state was created */
+    long getRefreshes() {
+        return buffer.getLong(REFRESHES_OFFSET);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Keeps the row if its job was not seen yet or if it has more RAM than the row stored for that job.
+     * @return the slot of the job
+     */
+    private int accumulate(final int jobID, final int taskIndex, final int machineID, final double ram) {
+        int slot = slotOf(jobID);
+        if (isUsed(slot)) {
+            if (ram > buffer.getDouble(offsetOf(slot) + RAM_OFFSET)) {
+                set(slot, jobID, taskIndex, machineID, ram);
+            }
+
+            return slot;
+        }
+
+        if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+            resize();
+            slot = slotOf(jobID);
+        }
+
+        set(slot, jobID, taskIndex, machineID, ram);
+        buffer.putInt(offsetOf(slot) + USED_OFFSET, 1);
+        buffer.putInt(SIZE_OFFSET, ++size);
+        return slot;
+    }
+
+    /** @return the slot holding the job or the free slot where it should be added */
+    private int slotOf(final int jobID) {
+        int slot = IntIndex.mix(jobID) & mask;
+        while (isUsed(slot) && buffer.getInt(offsetOf(slot)) != jobID) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private boolean isUsed(final int slot) {
+        return buffer.getInt(offsetOf(slot) + USED_OFFSET) != 0;
+    }
+
+    private void set(final int slot, final int jobID, final int taskIndex, final int machineID, final double ram) {
+        final int offset = offsetOf(slot);
+        buffer.putInt(offset, jobID);
+        buffer.putInt(offset + TASK_INDEX_OFFSET, taskIndex);
+        buffer.putInt(offset + MACHINE_ID_OFFSET, machineID);
+        buffer.putDouble(offset + RAM_OFFSET, ram);
+    }
+
+    private static int offsetOf(final int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * Moves every job into a new state file with twice the capacity,
+     * which then atomically replaces the current one.
+     */
+    private void resize() {
+        if (capacity == MAX_CAPACITY) {
+            throw new IllegalStateException("The state file holds at most %d jobs".formatted((int) (MAX_CAPACITY * MAX_LOAD_FACTOR)));
+        }
+
+        final Path tempFile = stateFile.resolveSibling(stateFile.getFileName() + ".resizing");
+        final var resized = new IncrementalMaxRamState(stateFile);
+        try {
+            resized.create(tempFile, capacity * 2);
+            for (int slot = 0; slot < capacity; slot++) {
+                if (isUsed(slot)) {
+                    final int offset = offsetOf(slot);
+                    resized.accumulate(
+                        buffer.getInt(offset), buffer.getInt(offset + TASK_INDEX_OFFSET),
+                        buffer.getInt(offset + MACHINE_ID_OFFSET), buffer.getDouble(offset + RAM_OFFSET));
+                }
+            }
+
+            resized.buffer.putLong(INPUT_OFFSET, getInputOffset());
+            resized.buffer.putLong(REFRESHES_OFFSET, getRefreshes());
+            resized.buffer.putInt(PENDING_DELTA_OFFSET, buffer.getInt(PENDING_DELTA_OFFSET));
+            resized.buffer.putLong(PENDING_END_OFFSET, buffer.getLong(PENDING_END_OFFSET));
+            resized.buffer.force();
+            resized.channel.close();
+            channel.close();
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map(Files.size(stateFile));
+            readHeader();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void create(final Path file, final int newCapacity) throws IOException {
+        Files.deleteIfExists(file);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(CAPACITY_OFFSET, newCapacity);
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        size = 0;
+    }
+
+    private void map(final long fileSize) throws IOException {
+        channel = FileChannel.open(stateFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.nativeOrder());
+    }
+
+    private void readHeader() {
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IllegalStateException(stateFile + " is not a max RAM state file");
+        }
+
+        capacity = buffer.getInt(CAPACITY_OFFSET);
+        size = buffer.getInt(SIZE_OFFSET);
+        mask = capacity - 1;
+        if (Integer.bitCount(capacity) != 1 || buffer.capacity() < offsetOf(capacity)) {
+            throw new IllegalStateException(stateFile + " is corrupted");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
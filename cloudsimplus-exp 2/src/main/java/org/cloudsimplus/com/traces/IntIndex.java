@@ -0,0 +1,126 @@
+package org.cloudsimplus.com.traces;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash index from an int key (such as a jobID) to an int value
+ * (such as a row number), using linear probing over two primitive arrays.
+ * It avoids the boxing and the containsKey/get/put triple lookup
+ * of a {@code Map<Integer, ...>}.
+ */
+final class IntIndex {
+    /** Value returned when a key is absent. Stored values must be non-negative. */
+    static final int ABSENT = -1;
+
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    IntIndex(final int expectedKeys) {
+        allocate(tableSizeFor(expectedKeys));
+    }
+
+    /** @return the value mapped to the key or {@link #ABSENT} */
+    int get(final int key) {
+        return values[slotOf(key)];
+    }
+
+    /**
+     * Maps the key to the value only if the key is absent.
+     * @return the value previously mapped to the key or {@link #ABSENT} if the value was added
+     */
+    int putIfAbsent(final int key, final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative");
+        }
+
+        int slot = slotOf(key);
+        if (values[slot] != ABSENT) {
+            return values[slot];
+        }
+
+        if (size + 1 > keys.length * MAX_LOAD_FACTOR) {
+            resize();
+            slot = slotOf(key);
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return ABSENT;
+    }
+
+    /** Replaces the value of a key that is already in the index. */
+    void replace(final int key, final int value) {
+        final int slot = slotOf(key);
+        if (values[slot] == ABSENT) {
+            throw new IllegalArgumentException("Key %d is not in the index".formatted(key));
+        }
+
+        values[slot] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** @return the values of all keys, in no particular order */
+    int[] values() {
+        final int[] result = new int[size];
+        int count = 0;
+        for (final int value : values) {
+            if (value != ABSENT) {
+                result[count++] = value;
+            }
+        }
+
+        return result;
+    }
+
+    private int slotOf(final int key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != ABSENT && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize() {
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                final int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        mask = capacity - 1;
+    }
+
+    /** Spreads sequential keys across the table (the murmur3 finalizer). */
+    static int mix(final int key) {
+        int h = key ^ (key >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /** @return a power of two table size able to hold the expected entries under the max load factor */
+    static int tableSizeFor(final int expectedEntries) {
+        final long needed = (long) Math.ceil(Math.max(expectedEntries, 2) / MAX_LOAD_FACTOR);
+        return (int) Math.min(1L << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+}
@@ -0,0 +1,320 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Byte-level parser for the {@code jobID,taskIndex,machineID,RAM} rows
+ * read by {@link MergeWorkflowWithMaxRam}.
+ *
+ * <p>Numbers are decoded straight from the (usually memory-mapped) buffer,
+ * using absolute reads, so parsing a row allocates no objects.
+ * Lines starting with {@code #} and blank lines are skipped.</p>
+ */
+final class JobCsvParser {
+    /** Receives each parsed row. */
+    @FunctionalInterface
+    interface RowConsumer {
+        void accept(int jobID, int taskIndex, int machineID, double ram);
+    }
+
+    /** Exact powers of ten, so that {@code mantissa / POWERS_OF_TEN[n]} is correctly rounded. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Largest mantissa that a double represents exactly (2^53). */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** Maximum number of bytes mapped at once by {@link #parseFile(Path, RowConsumer)}. */
+    private static final long MAX_MAPPED_BYTES = 1 << 30;
+
+    private final ByteBuffer buffer;
+    private final long baseOffset;
+    private int pos;
+
+    /**
+     * @param buffer the bytes to parse, from index 0 to its limit
+     * @param baseOffset the offset of the buffer inside the file, only used for error messages
+     */
+    JobCsvParser(final ByteBuffer buffer, final long baseOffset) {
+        this.buffer = buffer;
+        this.baseOffset = baseOffset;
+    }
+
+    /**
+     * Parses every row of a file sequentially, mapping it into memory in line-aligned pieces.
+     * @return the number of rows parsed
+     */
+    static long parseFile(final Path filePath, final RowConsumer consumer) {
+        try (var channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long rows = 0;
+            long start = 0;
+            while (start < size) {
+                final long length = Math.min(MAX_MAPPED_BYTES, size - start);
+                final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                final int end = start + length == size ? (int) length : lastLineEnd(buffer, start);
+                rows += new JobCsvParser(buffer.limit(end), start).parse(consumer);
+                start += end;
+            }
+
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses the complete lines of a file that come after the given offset,
+     * leaving out a last line that has no line break yet (as it may still be being written).
+     * @param offset the offset to start from, which must be the start of a line
+     * @return the offset just after the last line parsed
+     */
+    static long parseCompleteLines(final Path filePath, final long offset, final RowConsumer consumer) {
+        return parseCompleteLines(filePath, offset, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Parses the complete lines of a file between two offsets.
+     * @param offset the offset to start from, which must be the start of a line
+     * @param endOffset the offset to stop at (or past the end of the file), which must be the start of a line
+     * @return the offset just after the last line parsed
+     */
+    static long parseCompleteLines(final Path filePath, final long offset, final long endOffset, final RowConsumer consumer) {
+        try (var channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            final long size = Math.min(channel.size(), endOffset);
+            long start = offset;
+            while (start < size) {
+                final long length = Math.min(MAX_MAPPED_BYTES, size - start);
+                final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                final int end = lastLineEndOrZero(buffer);
+                if (end == 0) {
+                    if (length == MAX_MAPPED_BYTES) {
+                        throw lineTooLong(start);
+                    }
+
+                    break;
+                }
+
+                new JobCsvParser(buffer.limit(end), start).parse(consumer);
+                start += end;
+            }
+
+            return start;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** @return the index just after the last line break in the buffer */
+    private static int lastLineEnd(final ByteBuffer buffer, final long baseOffset) {
+        final int end = lastLineEndOrZero(buffer);
+        if (end == 0) {
+            throw lineTooLong(baseOffset);
+        }
+
+        return end;
+    }
+
+    /** @return the index just after the last line break in the buffer, or 0 if there is no line break */
+    private static int lastLineEndOrZero(final ByteBuffer buffer) {
+        for (int i = buffer.limit() - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+
+        return 0;
+    }
+
+    private static IllegalStateException lineTooLong(final long baseOffset) {
+        return new IllegalStateException("Line starting at byte offset %d is too long".formatted(baseOffset));
+    }
+
+    /**
+     * Parses every row in the buffer.
+     * @return the number of rows parsed
+     */
+    long parse(final RowConsumer consumer) {
+        final int limit = buffer.limit();
+        long rows = 0;
+        while (pos < limit) {
+            final byte first = buffer.get(pos);
+            if (first == '\n' || first == '\r') {
+                pos++;
+                continue;
+            }
+
+            if (first == '#') {
+                skipLine(limit);
+                continue;
+            }
+
+            final int rowStart = pos;
+            final int jobID = parseInt(limit, rowStart);
+            final int taskIndex = parseInt(limit, rowStart);
+            final int machineID = parseInt(limit, rowStart);
+            final double ram = parseDouble(limit, rowStart);
+            skipLine(limit);
+            consumer.accept(jobID, taskIndex, machineID, ram);
+            rows++;
+        }
+
+        return rows;
+    }
+
+    private void skipLine(final int limit) {
+        while (pos < limit && buffer.get(pos) != '\n') {
+            pos++;
+        }
+
+        pos++;
+    }
+
+    /** Parses an int field and moves past its trailing comma (if any). */
+    private int parseInt(final int limit, final int rowStart) {
+        final boolean negative = pos < limit && buffer.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+
+        final int digitsStart = pos;
+        long value = 0;
+        while (pos < limit) {
+            final int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw malformed(rowStart);
+            }
+            pos++;
+        }
+
+        if (pos == digitsStart) {
+            throw malformed(rowStart);
+        }
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw malformed(rowStart);
+        }
+
+        skipSeparator(limit, rowStart);
+        return (int) value;
+    }
+
+    /**
+     * Parses a decimal field such as {@code 16}, {@code 0.0625} or {@code 1.5e-3}.
+     * Values with too many significant digits to be converted exactly fall back to
+     * {@link Double#parseDouble(String)}, which is the only allocating path.
+     */
+    private double parseDouble(final int limit, final int rowStart) {
+        final int fieldStart = pos;
+        final boolean negative = pos < limit && buffer.get(pos) == '-';
+        if (negative || (pos < limit && buffer.get(pos) == '+')) {
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        boolean exact = true;
+        while (pos < limit) {
+            final byte b = buffer.get(pos);
+            if (b == '.' && !inFraction) {
+                inFraction = true;
+            } else if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    exact = false;
+                } else {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (inFraction) {
+                        fractionDigits++;
+                    }
+                }
+                digits++;
+            } else {
+                break;
+            }
+            pos++;
+        }
+
+        if (digits == 0) {
+            throw malformed(rowStart);
+        }
+
+        int exponent = 0;
+        if (pos < limit && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+            pos++;
+            final boolean negativeExponent = pos < limit && buffer.get(pos) == '-';
+            if (negativeExponent || (pos < limit && buffer.get(pos) == '+')) {
+                pos++;
+            }
+
+            final int exponentStart = pos;
+            while (pos < limit && buffer.get(pos) >= '0' && buffer.get(pos) <= '9') {
+                exponent = Math.min(exponent * 10 + buffer.get(pos) - '0', 1000);
+                pos++;
+            }
+
+            if (pos == exponentStart) {
+                throw malformed(rowStart);
+            }
+
+            exponent = negativeExponent ? -exponent : exponent;
+        }
+
+        final int scale = exponent - fractionDigits;
+        final double value;
+        if (exact && scale >= -22 && scale <= 22) {
+            final double magnitude = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+            value = negative ? -magnitude : magnitude;
+        } else {
+            //The text includes the sign
+            value = Double.parseDouble(text(fieldStart, pos));
+        }
+
+        skipSeparator(limit, rowStart);
+        return value;
+    }
+
+    private void skipSeparator(final int limit, final int rowStart) {
+        if (pos >= limit) {
+            return;
+        }
+
+        final byte b = buffer.get(pos);
+        if (b == ',') {
+            pos++;
+        } else if (b != '\n' && b != '\r') {
+            throw malformed(rowStart);
+        }
+    }
+
+    private String text(final int start, final int end) {
+        final var bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private IllegalStateException malformed(final int rowStart) {
+        int end = rowStart;
+        while (end < buffer.limit() && buffer.get(end) != '\n') {
+            end++;
+        }
+
+        return new IllegalStateException(
+            "Malformed row at byte offset %d: %s".formatted(baseOffset + rowStart, text(rowStart, end).strip()));
+    }
+}
@@ -0,0 +1,94 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A struct-of-arrays alternative to a {@code List<JobEntry>}, storing
+ * the jobID, taskIndex, machineID and RAM of each row in separate primitive columns
+ * (20 bytes per row, with no object header per row).
+ *
+ * <p>{@link #findMaxRamForJob()} gives the same rows as the list-based mode of {@link MergeWorkflowWithMaxRam},
+ * but uses an {@link IntIndex} instead of boxed {@code Integer} lookups.
+ * Exact duplicate rows don't need to be removed first, since they can't change the row chosen for a job.</p>
+ *
+ * @see HeapJobEntryTable
+ * @see OffHeapJobEntryTable
+ */
+interface JobEntryTable {
+    /** Number of bytes each row takes: 3 ints and 1 double. */
+    int ROW_BYTES = 3 * Integer.BYTES + Double.BYTES;
+
+    void add(int jobID, int taskIndex, int machineID, double ram);
+
+    int size();
+
+    int jobID(int row);
+
+    int taskIndex(int row);
+
+    int machineID(int row);
+
+    double ram(int row);
+
+    /**
+     * Creates an empty table of the same kind (on-heap or off-heap) as this one.
+     * @param capacity the number of rows the new table is expected to hold
+     */
+    JobEntryTable newTable(int capacity);
+
+    /**
+     * Keeps the row with the maximum RAM of each jobID.
+     * When rows of the same job have the same RAM, the first one is kept.
+     * @return a new table with one row per jobID
+     */
+    default JobEntryTable findMaxRamForJob() {
+        final var index = new IntIndex(Math.max(size() / 4, 16));
+        for (int row = 0; row < size(); row++) {
+            final int previous = index.putIfAbsent(jobID(row), row);
+            if (previous != IntIndex.ABSENT && ram(row) > ram(previous)) {
+                index.replace(jobID(row), row);
+            }
+        }
+
+        return copyRows(index);
+    }
+
+    /**
+     * Writes the rows in the same format produced by {@link JobEntry#toString()}.
+     */
+    default void writeCsv(final Path filePath) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath)) {
+            final var line = new StringBuilder(64);
+            for (int row = 0; row < size(); row++) {
+                line.setLength(0);
+                line.append(jobID(row)).append(',').append(taskIndex(row)).append(',')
+                    .append(machineID(row)).append(',').append(ram(row)).append(System.lineSeparator());
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Copies the rows referenced by the index to a new table, ordered by jobID.
+     */
+    private JobEntryTable copyRows(final IntIndex index) {
+        final int[] rows = index.values();
+        final long[] order = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            order[i] = ((long) jobID(rows[i]) << 32) | rows[i];
+        }
+
+        Arrays.sort(order);
+        final JobEntryTable result = newTable(rows.length);
+        for (final long entry : order) {
+            final int row = (int) entry;
+            result.add(jobID(row), taskIndex(row), machineID(row), ram(row));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * An open-addressing map from a jobID to the row having the maximum RAM for that job,
+ * stored in primitive arrays so that no object is created per job or per row.
+ *
+ * <p>When two rows of the same job have the same RAM, the one accumulated first is kept.
+ * Merging per-chunk maps in file order therefore gives the same result as
+ * a single sequential pass.</p>
+ */
+final class JobMaxRamMap {
+    private static final int DEFAULT_CAPACITY = 1 << 10;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private int[] jobIDs;
+    private int[] taskIndexes;
+    private int[] machineIDs;
+    private double[] rams;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    JobMaxRamMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    JobMaxRamMap(final int expectedJobs) {
+        allocate(IntIndex.tableSizeFor(expectedJobs));
+    }
+
+    /**
+     * Keeps the given row if its job was not seen yet or if it has more RAM
+     * than the row currently stored for that job.
+     */
+    void accumulate(final int jobID, final int taskIndex, final int machineID, final double ram) {
+        int slot = slotOf(jobID);
+        if (used[slot]) {
+            if (ram > rams[slot]) {
+                set(slot, jobID, taskIndex, machineID, ram);
+            }
+            return;
+        }
+
+        if (size + 1 > jobIDs.length * MAX_LOAD_FACTOR) {
+            resize();
+            slot = slotOf(jobID);
+        }
+
+        used[slot] = true;
+        set(slot, jobID, taskIndex, machineID, ram);
+        size++;
+    }
+
+    /**
+     * Accumulates all rows of another map into this one.
+     * The other map must hold rows that come after the ones in this map.
+     */
+    void mergeFrom(final JobMaxRamMap other) {
+        for (int i = 0; i < other.jobIDs.length; i++) {
+            if (other.used[i]) {
+                accumulate(other.jobIDs[i], other.taskIndexes[i], other.machineIDs[i], other.rams[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Calls the consumer for each job, in ascending jobID order.
+     */
+    void forEachSorted(final JobCsvParser.RowConsumer consumer) {
+        final long[] order = new long[size];
+        int count = 0;
+        for (int i = 0; i < jobIDs.length; i++) {
+            if (used[i]) {
+                //Sorts by jobID and keeps the slot in the low bits
+                order[count++] = ((long) jobIDs[i] << 32) | i;
+            }
+        }
+
+        Arrays.sort(order);
+        for (final long entry : order) {
+            final int slot = (int) entry;
+            consumer.accept(jobIDs[slot], taskIndexes[slot], machineIDs[slot], rams[slot]);
+        }
+    }
+
+    /**
+     * Writes the rows in the same format produced by {@link JobEntry#toString()}.
+     */
+    void writeCsv(final Path filePath) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath)) {
+            final var line = new StringBuilder(64);
+            final IOException[] failure = {null};
+            forEachSorted((jobID, taskIndex, machineID, ram) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+
+                line.setLength(0);
+                line.append(jobID).append(',').append(taskIndex).append(',')
+                    .append(machineID).append(',').append(ram).append(System.lineSeparator());
+                try {
+                    writer.append(line);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    private void set(final int slot, final int jobID, final int taskIndex, final int machineID, final double ram) {
+        jobIDs[slot] = jobID;
+        taskIndexes[slot] = taskIndex;
+        machineIDs[slot] = machineID;
+        rams[slot] = ram;
+    }
+
+    /** @return the slot holding the jobID or the free slot where it has to be inserted */
+    private int slotOf(final int jobID) {
+        int slot = IntIndex.mix(jobID) & mask;
+        while (used[slot] && jobIDs[slot] != jobID) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize() {
+        final int[] oldJobIDs = jobIDs;
+        final int[] oldTaskIndexes = taskIndexes;
+        final int[] oldMachineIDs = machineIDs;
+        final double[] oldRams = rams;
+        final boolean[] oldUsed = used;
+
+        allocate(oldJobIDs.length * 2);
+        for (int i = 0; i < oldJobIDs.length; i++) {
+            if (oldUsed[i]) {
+                final int slot = slotOf(oldJobIDs[i]);
+                used[slot] = true;
+                set(slot, oldJobIDs[i], oldTaskIndexes[i], oldMachineIDs[i], oldRams[i]);
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        jobIDs = new int[capacity];
+        taskIndexes = new int[capacity];
+        machineIDs = new int[capacity];
+        rams = new double[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+}
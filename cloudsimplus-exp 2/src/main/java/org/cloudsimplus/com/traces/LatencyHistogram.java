@@ -0,0 +1,87 @@
+package org.cloudsimplus.com.traces;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of latencies (in nanoseconds), laid out as in HdrHistogram:
+ * values are grouped by their power of 2 and each group is split into {@link #SUB_BUCKETS} linear buckets,
+ * so any value from 0 to {@link Long#MAX_VALUE} is recorded with at most 1/16 (about 6%) relative error,
+ * in O(1) and without allocating.
+ * It can be recorded and read by different threads.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | subBucket;
+    }
+
+    /** @return the highest value recorded in a bucket */
+    static long highestValueOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        final int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        final long lowest = (long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    long getCount() {
+        return totalCount.get();
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    double getMeanNanos() {
+        final long count = totalCount.get();
+        return count == 0 ? 0 : totalNanos.get() / (double) count;
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100
+     * @return the highest value of the bucket containing the percentile (never above the maximum recorded),
+     *         or 0 if nothing was recorded
+     */
+    long getPercentileNanos(final double percentile) {
+        final long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), maxNanos.get());
+            }
+        }
+
+        return maxNanos.get();
+    }
+}
@@ -0,0 +1,214 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.core.SimEntity;
+import org.cloudsimplus.network.topologies.BriteNetworkTopology;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A network topology read from a BRITE file, whose delay and bandwidth between every pair of nodes
+ * are computed once, when the file is loaded, and kept in flat arrays indexed by {@code source * nodes + destination}.
+ * Then the delay of each message sent between entities mapped to nodes is looked up in O(1).
+ *
+ * <p>{@link BriteNetworkTopology} computes the delays with Floyd–Warshall, which takes O(N³) for N nodes.
+ * BRITE graphs are sparse, so a Dijkstra from each node takes O(N·E·log N) instead,
+ * which is much faster for graphs with thousands of nodes.
+ * The bandwidth between two nodes is the smallest link bandwidth along the shortest-delay path.</p>
+ *
+ * <p>Entities not mapped to a node have no delay, as in {@link BriteNetworkTopology}.</p>
+ */
+final class LatencyMatrixTopology extends BriteNetworkTopology {
+    private final int nodes;
+    private final int links;
+    private final double[] delays;
+    private final double[] bandwidths;
+    private final Map<SimEntity, Integer> nodeByEntity = new IdentityHashMap<>();
+    private final double loadSeconds;
+
+    /** The adjacency lists of the graph, where the edges of node i are at positions firstEdge[i] to firstEdge[i + 1] - 1. */
+    private record Graph(int[] firstEdge, int[] targets, double[] edgeDelays, double[] edgeBandwidths) {}
+
+    private LatencyMatrixTopology(final int nodes, final int links, final Graph graph, final long startNanos) {
+        this.nodes = nodes;
+        this.links = links;
+        this.delays = new double[nodes * nodes];
+        this.bandwidths = new double[nodes * nodes];
+        for (int source = 0; source < nodes; source++) {
+            shortestPaths(graph, source);
+        }
+
+        this.loadSeconds = (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * Reads a BRITE file (only its Nodes and Edges sections, where each edge is taken as a bidirectional link)
+     * and computes the delay and bandwidth between all pairs of nodes.
+     */
+    static LatencyMatrixTopology load(final Path briteFile) {
+        final long startNanos = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(briteFile)) {
+            int nodes = 0;
+            int[] from = new int[0];
+            int[] to = new int[0];
+            double[] delay = new double[0];
+            double[] bandwidth = new double[0];
+            int edges = 0;
+            String section = "";
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                if (line.startsWith("Nodes:") || line.startsWith("Edges:") || line.startsWith("Topology:") || line.startsWith("Model")) {
+                    section = line.substring(0, line.indexOf(':') < 0 ? line.length() : line.indexOf(':'));
+                    continue;
+                }
+
+                final String[] fields = line.split("\\s+");
+                if (section.equals("Nodes")) {
+                    nodes = Math.max(nodes, Integer.parseInt(fields[0]) + 1);
+                } else if (section.equals("Edges")) {
+                    if (edges == from.length) {
+                        final int capacity = Math.max(16, edges * 2);
+                        from = Arrays.copyOf(from, capacity);
+                        to = Arrays.copyOf(to, capacity);
+                        delay = Arrays.copyOf(delay, capacity);
+                        bandwidth = Arrays.copyOf(bandwidth, capacity);
+                    }
+
+                    from[edges] = Integer.parseInt(fields[1]);
+                    to[edges] = Integer.parseInt(fields[2]);
+                    delay[edges] = Double.parseDouble(fields[4]);
+                    bandwidth[edges] = Double.parseDouble(fields[5]);
+                    edges++;
+                }
+            }
+
+            return new LatencyMatrixTopology(nodes, edges, toGraph(nodes, edges, from, to, delay, bandwidth), startNanos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Builds the adjacency lists of the undirected graph (compressed sparse row). */
+    private static Graph toGraph(
+        final int nodes, final int edges, final int[] from, final int[] to, final double[] delay, final double[] bandwidth)
+    {
+        final int[] firstEdge = new int[nodes + 1];
+        for (int edge = 0; edge < edges; edge++) {
+            firstEdge[from[edge] + 1]++;
+            firstEdge[to[edge] + 1]++;
+        }
+
+        for (int node = 0; node < nodes; node++) {
+            firstEdge[node + 1] += firstEdge[node];
+        }
+
+        final int[] next = Arrays.copyOf(firstEdge, nodes);
+        final int[] targets = new int[edges * 2];
+        final double[] edgeDelays = new double[edges * 2];
+        final double[] edgeBandwidths = new double[edges * 2];
+        for (int edge = 0; edge < edges; edge++) {
+            for (int direction = 0; direction < 2; direction++) {
+                final int source = direction == 0 ? from[edge] : to[edge];
+                final int slot = next[source]++;
+                targets[slot] = direction == 0 ? to[edge] : from[edge];
+                edgeDelays[slot] = delay[edge];
+                edgeBandwidths[slot] = bandwidth[edge];
+            }
+        }
+
+        return new Graph(firstEdge, targets, edgeDelays, edgeBandwidths);
+    }
+
+    /** Fills the row of a source node with a Dijkstra search over the link delays. */
+    private void shortestPaths(final Graph graph, final int source) {
+        final int row = source * nodes;
+        Arrays.fill(delays, row, row + nodes, Double.POSITIVE_INFINITY);
+        delays[row + source] = 0;
+        bandwidths[row + source] = Double.POSITIVE_INFINITY;
+
+        //Each entry is {delay, node}; stale entries (with a longer delay than the current one) are skipped
+        final var queue = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[]{0, source});
+        while (!queue.isEmpty()) {
+            final double[] entry = queue.poll();
+            final int node = (int) entry[1];
+            if (entry[0] > delays[row + node]) {
+                continue;
+            }
+
+            for (int edge = graph.firstEdge()[node]; edge < graph.firstEdge()[node + 1]; edge++) {
+                final int target = graph.targets()[edge];
+                final double delay = entry[0] + graph.edgeDelays()[edge];
+                if (delay < delays[row + target]) {
+                    delays[row + target] = delay;
+                    bandwidths[row + target] = Math.min(bandwidths[row + node], graph.edgeBandwidths()[edge]);
+                    queue.add(new double[]{delay, target});
+                }
+            }
+        }
+    }
+
+    /** Maps an entity (such as a Broker or Datacenter) to a node, so that its messages get the delay from that node. */
+    @Override
+    public void mapNode(final SimEntity entity, final int briteNode) {
+        if (briteNode < 0 || briteNode >= nodes) {
+            throw new IllegalArgumentException("Node %d is not in the topology, which has %d nodes".formatted(briteNode, nodes));
+        }
+
+        nodeByEntity.put(entity, briteNode);
+    }
+
+    /** @return the delay between two entities, or 0 if any of them is not mapped or there is no path between them */
+    @Override
+    public double getDelay(final SimEntity src, final SimEntity dest) {
+        final Integer source = nodeByEntity.get(src);
+        final Integer destination = nodeByEntity.get(dest);
+        if (source == null || destination == null) {
+            return 0;
+        }
+
+        final double delay = delays[source * nodes + destination];
+        return Double.isInfinite(delay) ? 0 : delay;
+    }
+
+    /** @return the bandwidth of the shortest-delay path between two entities, or 0 if any of them is not mapped */
+    double getBandwidth(final SimEntity src, final SimEntity dest) {
+        final Integer source = nodeByEntity.get(src);
+        final Integer destination = nodeByEntity.get(dest);
+        return source == null || destination == null ? 0 : bandwidths[source * nodes + destination];
+    }
+
+    int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Maps entities to nodes in turn, starting from a given node and wrapping around,
+     * such as Brokers after the nodes of the Datacenters.
+     * @param index the index of the entity among the ones mapped this way
+     * @param firstNode the first node of the turn
+     */
+    void mapInTurn(final SimEntity entity, final int index, final int firstNode) {
+        final int free = Math.max(1, nodes - firstNode);
+        mapNode(entity, Math.min(firstNode, nodes - 1) + index % free);
+    }
+
+    void printSummary() {
+        final double diameter = Arrays.stream(delays).filter(Double::isFinite).max().orElse(0);
+        System.out.printf(
+            "%nTopology: %d nodes, %d links, %d entities mapped, all-pairs delays computed in %.3f seconds (diameter %.2f)%n",
+            nodes, links, nodeByEntity.size(), loadSeconds, diameter);
+    }
+}
@@ -0,0 +1,339 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.brokers.DatacenterBroker;
+import org.cloudsimplus.brokers.DatacenterBrokerSimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.core.CloudSimTag;
+import org.cloudsimplus.datacenters.Datacenter;
+import org.cloudsimplus.listeners.EventInfo;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Replays Google task events and task usage trace files lazily, while the simulation runs.
+ * Instead of creating every Cloudlet and Broker up front (as {@code GoogleTaskEventsTraceReader.process()} does),
+ * rows are pulled from the files one simulation-time window at a time (such as the next 5 minutes of trace time)
+ * by a clock tick listener. This way, memory is proportional to the tasks in flight,
+ * not to the size of the trace.
+ *
+ * <ul>
+ *   <li>SUBMIT events create a Cloudlet, submitted to the Broker of the event's user
+ *   with a delay that makes it arrive at the event time;</li>
+ *   <li>EVICT, FAIL, FINISH, KILL and LOST events finish the task's Cloudlet at the event time;</li>
+ *   <li>task usage rows update the Cloudlet utilization when their measurement period starts
+ *   (see {@link TaskUsageUpdater});</li>
+ *   <li>other events are ignored, since the simulation does its own scheduling.</li>
+ * </ul>
+ *
+ * <p>By default, the Cloudlets of a window are submitted when the window is read, each with its own submission delay.
+ * With {@link #setArrivalBatches(boolean) arrival batches}, they are kept until the simulation reaches their timestamp
+ * and then the Cloudlets of each Broker arriving at the same time are submitted together, without a delay,
+ * so that future events are not created for each Cloudlet and the VM mapper binds them with the load at their arrival.</p>
+ *
+ * <p>Trace files should be ordered by timestamp, as Google traces are.
+ * A row out of order is handled at its own time or, if its window was already read, as soon as it's read
+ * (see {@link TraceWindowReader}), since the pending rows are kept in {@link TimestampQueue}s.
+ * With {@link TraceColumnarCache#ENABLED}, rows are decoded from the cache of each file instead of parsing its text.
+ * The simulation is woken up at each window start and at each event time,
+ * by sending itself a {@link CloudSimTag#VM_UPDATE_CLOUDLET_PROCESSING} through the datacenter.</p>
+ */
+final class LazyTaskEventsReplay {
+    private static final String BROKER_PREFIX = "Broker_";
+    private static final double MICROS_PER_SECOND = 1_000_000;
+
+    private final CloudSimPlus simulation;
+    private final Datacenter datacenter;
+    private final long windowMicros;
+    private final Function<TaskEventRow, Cloudlet> cloudletFactory;
+    private final Consumer<DatacenterBroker> brokerInitializer;
+    private final Predicate<String> userFilter;
+    private final TraceWindowReader<TaskEventRow> taskEvents;
+    private final TraceWindowReader<TaskUsageRow> taskUsage;
+
+    private final List<DatacenterBroker> brokers = new ArrayList<>();
+    private final Map<String, DatacenterBroker> brokersByUsername = new HashMap<>();
+    /** Cloudlets to be submitted at once, grouped by Broker. */
+    private final Map<DatacenterBroker, List<Cloudlet>> windowSubmissions = new LinkedHashMap<>();
+    /**
+     * Cloudlets submitted and not terminated yet, indexed by {@link TaskEventRow#taskKey()}.
+     * Tasks whose arrival batch is not submitted yet are mapped to null.
+     */
+    private final Map<Long, Cloudlet> inFlight = new HashMap<>();
+    /** SUBMIT events whose arrival batch is not submitted yet, in timestamp order. */
+    private final Queue<TaskEventRow> pendingSubmissions = new TimestampQueue<>();
+    private final Queue<TaskEventRow> pendingTerminations = new TimestampQueue<>();
+    private final TaskUsageUpdater usageUpdater = new TaskUsageUpdater(inFlight::get);
+
+    /** Start of the next window to be read (in microseconds), or {@link Long#MAX_VALUE} when the files are over. */
+    private long windowStart;
+    private long lastTerminationWakeup = -1;
+    private long lastUsageWakeup = -1;
+    private long lastSubmissionWakeup = -1;
+    private boolean arrivalBatches;
+    private long submittedCloudlets;
+    private long terminatedCloudlets;
+    private long submissionBatches;
+    private int maxInFlight;
+    private int windows;
+
+    /**
+     * @param taskUsageFile the task usage file, or null to replay just the task events
+     * @param windowSecs the length of the trace time window read at once (in seconds)
+     * @param cloudletFactory creates the Cloudlet for a SUBMIT event
+     * @param brokerInitializer called for each Broker created for a new user, such as for submitting its VMs
+     */
+    LazyTaskEventsReplay(
+        final CloudSimPlus simulation, final Datacenter datacenter,
+        final Path taskEventsFile, final Path taskUsageFile, final double windowSecs,
+        final Function<TaskEventRow, Cloudlet> cloudletFactory, final Consumer<DatacenterBroker> brokerInitializer)
+    {
+        this(simulation, datacenter, taskEventsFile, taskUsageFile, windowSecs, cloudletFactory, brokerInitializer, null);
+    }
+
+    /**
+     * Replays just the events of some users (and the task usage rows of their tasks).
+     * @param userFilter selects the usernames whose events are replayed, or null to replay all users
+     * @see ShardedTaskEventsReplay
+     */
+    LazyTaskEventsReplay(
+        final CloudSimPlus simulation, final Datacenter datacenter,
+        final Path taskEventsFile, final Path taskUsageFile, final double windowSecs,
+        final Function<TaskEventRow, Cloudlet> cloudletFactory, final Consumer<DatacenterBroker> brokerInitializer,
+        final Predicate<String> userFilter)
+    {
+        if (windowSecs <= 0) {
+            throw new IllegalArgumentException("The replay window must be greater than zero");
+        }
+
+        this.simulation = simulation;
+        this.datacenter = datacenter;
+        this.windowMicros = Math.max(1, (long) (windowSecs * MICROS_PER_SECOND));
+        this.cloudletFactory = cloudletFactory;
+        this.brokerInitializer = brokerInitializer;
+        this.userFilter = userFilter;
+        this.taskEvents = TraceWindowReader.open(taskEventsFile, TaskEventRow::parse, TaskEventRow::of);
+        this.taskUsage = taskUsageFile == null ? null : TraceWindowReader.open(taskUsageFile, TaskUsageRow::parse, TaskUsageRow::of);
+    }
+
+    /**
+     * Sets whether the Cloudlets are submitted in batches when they arrive, instead of when their window is read.
+     * Must be called before {@link #start()}.
+     */
+    LazyTaskEventsReplay setArrivalBatches(final boolean arrivalBatches) {
+        this.arrivalBatches = arrivalBatches;
+        return this;
+    }
+
+    /**
+     * Reads the first window and registers the clock tick listener that reads the next ones.
+     * Must be called before the simulation starts.
+     */
+    void start() {
+        final long first = nextTimestamp();
+        if (first == Long.MAX_VALUE) {
+            windowStart = Long.MAX_VALUE;
+            closeFiles();
+            return;
+        }
+
+        windowStart = first - Math.floorMod(first, windowMicros);
+        readNextWindow();
+        simulation.addOnClockTickListener(this::onClockTick);
+    }
+
+    private void onClockTick(final EventInfo info) {
+        final double time = info.getTime();
+        while (windowStart != Long.MAX_VALUE && windowStart / MICROS_PER_SECOND <= time) {
+            readNextWindow();
+        }
+
+        submitArrivedCloudlets(time);
+        finishTerminatedCloudlets(time);
+        usageUpdater.applyUntil(time);
+    }
+
+    private void readNextWindow() {
+        final long windowEnd = windowStart + windowMicros;
+        taskEvents.readUntil(windowEnd, this::processTaskEvent);
+        if (taskUsage != null) {
+            taskUsage.readUntil(windowEnd, this::scheduleUsage);
+        }
+
+        //Submits the Cloudlets of the window or, with arrival batches, the ones arriving now
+        submitArrivedCloudlets(simulation.clock());
+        maxInFlight = Math.max(maxInFlight, inFlight.size());
+        windows++;
+
+        //Skips empty windows, so that gaps in the trace don't wake the simulation up
+        final long next = nextTimestamp();
+        if (next == Long.MAX_VALUE) {
+            windowStart = Long.MAX_VALUE;
+            closeFiles();
+            return;
+        }
+
+        windowStart = Math.max(windowEnd, next - Math.floorMod(next, windowMicros));
+        wakeUpAt(windowStart);
+    }
+
+    private void processTaskEvent(final TaskEventRow event) {
+        if (userFilter != null && !userFilter.test(event.username())) {
+            return;
+        }
+
+        if (event.eventType() == TaskEventRow.SUBMIT && arrivalBatches) {
+            deferSubmission(event);
+        } else if (event.eventType() == TaskEventRow.SUBMIT) {
+            submitCloudlet(event);
+        } else if (event.isTerminal()) {
+            pendingTerminations.add(event);
+            if (event.timestamp() != lastTerminationWakeup) {
+                wakeUpAt(event.timestamp());
+                lastTerminationWakeup = event.timestamp();
+            }
+        }
+    }
+
+    private void submitCloudlet(final TaskEventRow event) {
+        final Cloudlet cloudlet = cloudletFactory.apply(event);
+        cloudlet.setJobId(event.jobId());
+        cloudlet.setSubmissionDelay(delayUntil(event.timestamp()));
+
+        final DatacenterBroker broker = brokersByUsername.computeIfAbsent(event.username(), this::createBroker);
+        windowSubmissions.computeIfAbsent(broker, b -> new ArrayList<>()).add(cloudlet);
+        inFlight.put(event.taskKey(), cloudlet);
+        submittedCloudlets++;
+    }
+
+    private void deferSubmission(final TaskEventRow event) {
+        pendingSubmissions.add(event);
+        inFlight.put(event.taskKey(), null);
+        if (event.timestamp() != lastSubmissionWakeup) {
+            wakeUpAt(event.timestamp());
+            lastSubmissionWakeup = event.timestamp();
+        }
+    }
+
+    /** Creates the Cloudlets whose arrival time has been reached and submits the pending ones, a batch for each Broker. */
+    private void submitArrivedCloudlets(final double time) {
+        while (!pendingSubmissions.isEmpty() && pendingSubmissions.peek().timestamp() / MICROS_PER_SECOND <= time) {
+            submitCloudlet(pendingSubmissions.poll());
+        }
+
+        submissionBatches += windowSubmissions.size();
+        windowSubmissions.forEach(DatacenterBroker::submitCloudletList);
+        windowSubmissions.clear();
+    }
+
+    private DatacenterBroker createBroker(final String username) {
+        final var broker = new DatacenterBrokerSimple(simulation, BROKER_PREFIX + username);
+        brokers.add(broker);
+        brokerInitializer.accept(broker);
+        return broker;
+    }
+
+    private void scheduleUsage(final TaskUsageRow row) {
+        //Rows of tasks from filtered out users (usage rows have no username) don't wake the simulation up
+        if (userFilter != null && !inFlight.containsKey(row.taskKey())) {
+            return;
+        }
+
+        usageUpdater.add(row);
+        if (row.timestamp() != lastUsageWakeup) {
+            wakeUpAt(row.timestamp());
+            lastUsageWakeup = row.timestamp();
+        }
+    }
+
+    /**
+     * Finishes the Cloudlets whose terminal event time has been reached,
+     * by reducing their length to what they have already executed.
+     */
+    private void finishTerminatedCloudlets(final double time) {
+        boolean finished = false;
+        while (!pendingTerminations.isEmpty() && pendingTerminations.peek().timestamp() / MICROS_PER_SECOND <= time) {
+            final Cloudlet cloudlet = inFlight.remove(pendingTerminations.poll().taskKey());
+            if (cloudlet != null) {
+                cloudlet.setLength(Math.max(1, cloudlet.getFinishedLengthSoFar()));
+                terminatedCloudlets++;
+                finished = true;
+            }
+        }
+
+        if (finished) {
+            //Makes the new lengths take effect at the current time
+            datacenter.schedule(0, CloudSimTag.VM_UPDATE_CLOUDLET_PROCESSING);
+        }
+    }
+
+    private void wakeUpAt(final long timestamp) {
+        datacenter.schedule(delayUntil(timestamp), CloudSimTag.VM_UPDATE_CLOUDLET_PROCESSING);
+    }
+
+    /** @return the delay (in seconds) from the current simulation time until a trace timestamp */
+    private double delayUntil(final long timestamp) {
+        return Math.max(0, timestamp / MICROS_PER_SECOND - simulation.clock());
+    }
+
+    private long nextTimestamp() {
+        return Math.min(taskEvents.nextTimestamp(), taskUsage == null ? Long.MAX_VALUE : taskUsage.nextTimestamp());
+    }
+
+    private void closeFiles() {
+        taskEvents.close();
+        if (taskUsage != null) {
+            taskUsage.close();
+        }
+    }
+
+    /** @return the Brokers created so far, one for each user (the list grows as the replay goes on) */
+    List<DatacenterBroker> getBrokers() {
+        return brokers;
+    }
+
+    long getSubmittedCloudlets() {
+        return submittedCloudlets;
+    }
+
+    long getTerminatedCloudlets() {
+        return terminatedCloudlets;
+    }
+
+    /** @return the number of times Cloudlets were submitted to a Broker, which takes a list of Cloudlets each time */
+    long getSubmissionBatches() {
+        return submissionBatches;
+    }
+
+    /** @return the maximum number of Cloudlets in flight at the end of a window */
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    int getWindows() {
+        return windows;
+    }
+
+    /** @return the number of task events and task usage rows read so far with a timestamp lower than a previous row */
+    long getOutOfOrderRows() {
+        return taskEvents.getOutOfOrderRows() + (taskUsage == null ? 0 : taskUsage.getOutOfOrderRows());
+    }
+
+    /** @return the number of task events and task usage rows read so far */
+    long getRowsRead() {
+        return taskEvents.getRowsRead() + (taskUsage == null ? 0 : taskUsage.getRowsRead());
+    }
+
+    TaskUsageUpdater getUsageUpdater() {
+        return usageUpdater;
+    }
+}
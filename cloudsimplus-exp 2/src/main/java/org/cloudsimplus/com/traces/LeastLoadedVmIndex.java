@@ -0,0 +1,153 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.brokers.DatacenterBroker;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.listeners.CloudletVmEventInfo;
+import org.cloudsimplus.listeners.EventListener;
+import org.cloudsimplus.vms.Vm;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A VM mapper for a Broker that binds each Cloudlet to the created VM with the most free PEs,
+ * counting the PEs of the Cloudlets bound to each VM and not finished yet
+ * (which {@link TaskEvents} sets from {@code TaskEvent.actualCpuCores()}).
+ *
+ * <p>VMs are kept in a binary max-heap by free PEs (ties go to the first VM created),
+ * updated in O(log V) when a Cloudlet is bound and when it finishes,
+ * instead of going through the VM list for each Cloudlet.
+ * Free PEs may become negative, since time-shared VMs accept more Cloudlets than PEs.
+ * VMs created later (such as the ones of a Broker created during a lazy replay) are added at the next mapping.</p>
+ *
+ * @see TaskEvents
+ */
+final class LeastLoadedVmIndex implements Function<Cloudlet, Vm> {
+    private final DatacenterBroker broker;
+    private final Map<Vm, Integer> slotByVm = new IdentityHashMap<>();
+    private final EventListener<CloudletVmEventInfo> finishListener = info -> release(info.getCloudlet());
+
+    private Vm[] vms = new Vm[0];
+    private long[] freePes = new long[0];
+    /** The heap of VM slots, where the children of position i are 2i+1 and 2i+2. */
+    private int[] heap = new int[0];
+    /** The heap position of each VM slot. */
+    private int[] positions = new int[0];
+    private int size;
+
+    LeastLoadedVmIndex(final DatacenterBroker broker) {
+        this.broker = broker;
+    }
+
+    /** Sets this index as the VM mapper of a Broker. */
+    static void install(final DatacenterBroker broker) {
+        broker.setVmMapper(new LeastLoadedVmIndex(broker));
+    }
+
+    /** @return the VM with the most free PEs, or {@link Vm#NULL} if the Broker has no created VM */
+    @Override
+    public Vm apply(final Cloudlet cloudlet) {
+        if (cloudlet.isBoundToVm()) {
+            return cloudlet.getVm();
+        }
+
+        syncVms();
+        if (size == 0) {
+            return Vm.NULL;
+        }
+
+        final int slot = heap[0];
+        freePes[slot] -= cloudlet.getPesNumber();
+        siftDown(0);
+        cloudlet.addOnFinishListener(finishListener);
+        return vms[slot];
+    }
+
+    private void release(final Cloudlet cloudlet) {
+        final Integer slot = slotByVm.get(cloudlet.getVm());
+        if (slot != null) {
+            freePes[slot] += cloudlet.getPesNumber();
+            siftUp(positions[slot]);
+        }
+    }
+
+    /** Adds the VMs created since the last mapping (the Broker's created list only grows). */
+    private void syncVms() {
+        final List<Vm> created = broker.getVmCreatedList();
+        if (created.size() == size) {
+            return;
+        }
+
+        if (created.size() > vms.length) {
+            final int capacity = Math.max(created.size(), vms.length * 2);
+            vms = Arrays.copyOf(vms, capacity);
+            freePes = Arrays.copyOf(freePes, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+
+        for (final Vm vm : created) {
+            if (slotByVm.containsKey(vm)) {
+                continue;
+            }
+
+            final int slot = size++;
+            slotByVm.put(vm, slot);
+            vms[slot] = vm;
+            freePes[slot] = vm.getPesNumber();
+            heap[slot] = slot;
+            positions[slot] = slot;
+            siftUp(slot);
+        }
+    }
+
+    /** @return true if the VM at heap position a should be above the one at position b */
+    private boolean before(final int a, final int b) {
+        final int slotA = heap[a];
+        final int slotB = heap[b];
+        return freePes[slotA] > freePes[slotB] || (freePes[slotA] == freePes[slotB] && slotA < slotB);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            final int parent = (position - 1) / 2;
+            if (!before(position, parent)) {
+                return;
+            }
+
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            final int left = 2 * position + 1;
+            final int right = left + 1;
+            int best = position;
+            if (left < size && before(left, best)) {
+                best = left;
+            }
+            if (right < size && before(right, best)) {
+                best = right;
+            }
+            if (best == position) {
+                return;
+            }
+
+            swap(position, best);
+            position = best;
+        }
+    }
+
+    private void swap(final int a, final int b) {
+        final int slot = heap[a];
+        heap[a] = heap[b];
+        heap[b] = slot;
+        positions[heap[a]] = a;
+        positions[heap[b]] = b;
+    }
+}
@@ -23,6 +23,7 @@
  */
 package org.cloudsimplus.com.traces;
 
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicy;
 import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
 import org.cloudsimplus.brokers.DatacenterBroker;
 import org.cloudsimplus.brokers.DatacenterBrokerSimple;
@@ -35,7 +36,6 @@ import org.cloudsimplus.datacenters.Datacenter;
 import org.cloudsimplus.datacenters.DatacenterSimple;
 import org.cloudsimplus.hosts.Host;
 import org.cloudsimplus.hosts.HostSimple;
-import org.cloudsimplus.listeners.HostEventInfo;
 import org.cloudsimplus.resources.Pe;
 import org.cloudsimplus.resources.PeSimple;
 import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerSpaceShared;
@@ -47,8 +47,12 @@ import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
 import org.cloudsimplus.vms.Vm;
 import org.cloudsimplus.vms.VmSimple;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 
@@ -61,8 +65,51 @@ public class MachineEvents {
     private static final int CLOUDLET_LENGTH = 100000;
     private static final int DATACENTERS_NUMBER = 2;
 
+    /**
+     * Set with -Dtraces.allocation.indexed=true to place VMs with a {@link VmAllocationPolicyIndexed},
+     * which selects the same Hosts as {@link VmAllocationPolicySimple} in O(log H) instead of O(H).
+     */
+    private static final boolean INDEXED_ALLOCATION = Boolean.getBoolean("traces.allocation.indexed");
+
+    /**
+     * Set with -Dtraces.parallel=true to run each Datacenter (and the Broker using it) as an independent simulation,
+     * each one on its own thread. This is not a parallel discrete-event simulation:
+     * the simulations never exchange events, so they are just run side by side until both finish.
+     *
+     * <p>This changes the model: a Broker can't send events to a Datacenter of another simulation,
+     * so the VMs and Cloudlets of the Hosts added later to the second Datacenter are submitted
+     * by a second Broker, instead of {@code broker0}. To keep the results comparable,
+     * those VMs and Cloudlets get the IDs {@code broker0} would give them in a sequential run.
+     * Since the second Broker has its own VM creation retries and idle shutdown,
+     * the results may differ from the sequential run: compare them with
+     * {@code ResultRegression MachineEvents -Dtraces.parallel=true}.</p>
+     */
+    private static final boolean PARALLEL = Boolean.getBoolean("traces.parallel");
+
+    /**
+     * A BRITE topology file (such as topology.brite), set with -Dtraces.topology, to add network delays
+     * between Brokers and Datacenters. Datacenters are mapped to the first nodes and Brokers to the next ones.
+     * @see LatencyMatrixTopology
+     */
+    private static final String TOPOLOGY = System.getProperty("traces.topology");
+
+    /**
+     * Set with -Dtraces.hosts.unbatched=true to submit the VMs and Cloudlets of each Host added later as soon as it
+     * becomes available, instead of once for all Hosts added at the same instant.
+     * {@link HostChurnBatcher} prints the broker rounds batching saves, which are none in this mode.
+     */
+    private static final boolean HOST_UNBATCHED = Boolean.getBoolean("traces.hosts.unbatched");
+
     private final CloudSimPlus simulation;
     private final DatacenterBroker broker0;
+
+    /** The simulation and Broker for the second Datacenter, which are the same as the first one's unless in {@link #PARALLEL} mode. */
+    private final CloudSimPlus laterHostsSimulation;
+    private final DatacenterBroker laterHostsBroker;
+
+    /** The IDs of the next VM and Cloudlet for later Hosts in {@link #PARALLEL} mode, following the ones of {@code broker0}. */
+    private long nextLaterVmId;
+    private long nextLaterCloudletId;
     private List<Datacenter> datacenters;
 
     public static void main(String[] args) {
@@ -75,25 +122,92 @@ public class MachineEvents {
         //Log.setLevel(ch.qos.logback.classic.Level.WARN);
 
         simulation = new CloudSimPlus();
+        laterHostsSimulation = PARALLEL ? new CloudSimPlus() : simulation;
         createDatacenters();
 
         //Creates a broker that is a software acting on behalf of a cloud customer to manage his/her VMs and Cloudlets
         broker0 = new DatacenterBrokerSimple(simulation);
+        laterHostsBroker = PARALLEL ? new DatacenterBrokerSimple(laterHostsSimulation) : broker0;
+        final LatencyMatrixTopology topology = TOPOLOGY == null ? null : createTopology();
 
         List<Vm> vmList = createAndSubmitVms(datacenters.get(0));
+        nextLaterVmId = vmList.size();
+        nextLaterCloudletId = vmList.size();
+
+        createAndSubmitCloudlets(broker0, vmList);
+
+        /* Sets a listener method that will be called with all the Hosts that become available
+        * at the same time during simulation runtime for the second Datacenter*/
+        final var hostChurn = new HostChurnBatcher(
+            laterHostsSimulation, datacenters.get(1), this::onHostsAvailableListener, !HOST_UNBATCHED);
+
+        if (PARALLEL) {
+            final long startNanos = System.nanoTime();
+            runInParallel(List.of(simulation, laterHostsSimulation));
+            System.out.printf("%nRan 2 independent simulations in parallel. Wall time: %.3f seconds%n", (System.nanoTime() - startNanos) / 1e9);
+        } else {
+            simulation.start();
+        }
 
-        createAndSubmitCloudlets(vmList);
-
-        /* Sets a listener method that will be called every time a new Host becomes available during simulation runtime
-        * for the second Datacenter*/
-        datacenters.get(1).addOnHostAvailableListener(this::onHostAvailableListener);
-
-        simulation.start();
+        final var cloudletFinishedList = new ArrayList<Cloudlet>(broker0.getCloudletFinishedList());
+        if (laterHostsBroker != broker0) {
+            cloudletFinishedList.addAll(laterHostsBroker.getCloudletFinishedList());
+        }
 
-        final var cloudletFinishedList = broker0.getCloudletFinishedList();
         new CloudletsTableBuilder(cloudletFinishedList)
                 .addColumn(new TextTableColumn("Host Startup", "Time"), this::getHostStartupTime, 5)
                 .build();
+        ResultChecksum.print(cloudletFinishedList);
+        hostChurn.printSummary();
+        if (topology != null) {
+            topology.printSummary();
+        }
+    }
+
+    /** Runs independent simulations until all of them finish, using a thread for each one. */
+    private static void runInParallel(final List<CloudSimPlus> simulations) {
+        final var pool = Executors.newFixedThreadPool(simulations.size());
+        try {
+            final var futures = new ArrayList<Future<?>>(simulations.size());
+            for (final CloudSimPlus sim : simulations) {
+                futures.add(pool.submit(sim::start));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the simulations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the {@link #TOPOLOGY}, mapping the Datacenters and Brokers to its nodes,
+     * and sets it as the network topology of the simulations.
+     */
+    private LatencyMatrixTopology createTopology() {
+        final var topology = LatencyMatrixTopology.load(Path.of(TOPOLOGY));
+        for (int i = 0; i < datacenters.size(); i++) {
+            topology.mapInTurn(datacenters.get(i), i, 0);
+        }
+
+        topology.mapInTurn(broker0, 0, datacenters.size());
+        if (laterHostsBroker != broker0) {
+            topology.mapInTurn(laterHostsBroker, 1, datacenters.size());
+        }
+
+        simulation.setNetworkTopology(topology);
+        laterHostsSimulation.setNetworkTopology(topology);
+        return topology;
     }
 
     private double getHostStartupTime(final Cloudlet cloudlet) {
@@ -101,15 +215,24 @@ public class MachineEvents {
     }
 
     /**
-     * Method called every time a new Host becomes available during simulation runtime
-     * for the second Datacenter. It creates a VM and a Cloudlet, submitting them when there is a new Host available.
+     * Method called with the Hosts that become available at the same time during simulation runtime
+     * for the second Datacenter. It creates a VM and a Cloudlet for each Host,
+     * submitting all of them at once.
      *
-     * @param info event information (that includes the simulation time and the new available host)
+     * @param hosts the Hosts that have just become available
      */
-    private void onHostAvailableListener(HostEventInfo info) {
-        final Vm vm = createVm(info.getHost());
-        broker0.submitVm(vm);
-        broker0.submitCloudlet(createCloudlet(vm));
+    private void onHostsAvailableListener(final List<Host> hosts) {
+        final var vmList = new ArrayList<Vm>(hosts.size());
+        for (final Host host : hosts) {
+            final Vm vm = createVm(host);
+            if (laterHostsBroker != broker0) {
+                vm.setId(nextLaterVmId++);
+            }
+            vmList.add(vm);
+        }
+
+        laterHostsBroker.submitVmList(vmList);
+        createAndSubmitCloudlets(laterHostsBroker, vmList);
     }
 
     /**
@@ -126,13 +249,15 @@ public class MachineEvents {
     private void createDatacenters() {
         datacenters = new ArrayList<>(DATACENTERS_NUMBER);
 
-        final GoogleMachineEventsTraceReader reader = GoogleMachineEventsTraceReader.getInstance(TRACE_FILENAME, this::createHost);
+        final var reader = new GoogleMachineEventsTraceReader(
+            TraceInputStreams.decodedName(TRACE_FILENAME), TraceInputStreams.open(TRACE_FILENAME), this::createHost);
         reader.setMaxRamCapacity(32);
         reader.setMaxCpuCores(10);
 
         //Creates Datacenters with no hosts.
         for(int i = 0; i < DATACENTERS_NUMBER; i++){
-            datacenters.add(new DatacenterSimple(simulation, new VmAllocationPolicySimple()));
+            final VmAllocationPolicy allocationPolicy = INDEXED_ALLOCATION ? new VmAllocationPolicyIndexed() : new VmAllocationPolicySimple();
+            datacenters.add(new DatacenterSimple(i == 0 ? simulation : laterHostsSimulation, allocationPolicy));
         }
 
         /*Process the trace file and creates the Hosts that the timestamp is defined as zero inside the file.
@@ -202,16 +327,19 @@ public class MachineEvents {
     }
 
     /**
-     * Creates a list of Cloudlets for the given VMs.
+     * Creates a list of Cloudlets for the given VMs and submits them to the Broker of those VMs.
      */
-    private void createAndSubmitCloudlets(final List<Vm> vmList) {
+    private void createAndSubmitCloudlets(final DatacenterBroker broker, final List<Vm> vmList) {
         final var list = new ArrayList<Cloudlet>(vmList.size());
         for (final var vm : vmList) {
             final var cloudlet = createCloudlet(vm);
+            if (broker != broker0) {
+                cloudlet.setId(nextLaterCloudletId++);
+            }
             list.add(cloudlet);
         }
 
-        broker0.submitCloudletList(list);
+        broker.submitCloudletList(list);
     }
 
     private Cloudlet createCloudlet(Vm vm) {
@@ -4,6 +4,9 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 class JobEntry {
@@ -20,19 +23,19 @@ class JobEntry {
         this.machineID = machineID;
         this.ram = ram;
     }
-    // Implement equals and hashCode methods based on the criteria to identify duplicates
+    // Rows are duplicates only if every column is equal, so that the other rows of a job still compete for its max RAM
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         JobEntry jobEntry = (JobEntry) obj;
-        return jobID == jobEntry.jobID;
-        // Add other conditions if needed
+        return jobID == jobEntry.jobID && taskIndex == jobEntry.taskIndex &&
+               machineID == jobEntry.machineID && Double.compare(ram, jobEntry.ram) == 0;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(jobID);
+        return Objects.hash(jobID, taskIndex, machineID, ram);
     }
 
     // Override toString to print the entry as CSV
@@ -44,10 +47,47 @@ class JobEntry {
 }
 
 public class MergeWorkflowWithMaxRam {
+    /**
+     * Set with -Dmerge.mode=streaming to reduce the input with the {@link StreamingMaxRamReducer},
+     * with -Dmerge.mode=table to load the rows into a {@link HeapJobEntryTable}
+     * or with -Dmerge.mode=offheap to load them into an {@link OffHeapJobEntryTable}
+     * (-Dmerge.mode=mapped to map it to a temporary file beside the output file, for inputs larger than RAM),
+     * instead of loading every row into a list of {@link JobEntry} objects.
+     * With -Dmerge.mode=incremental, just the rows appended since the last run are read,
+     * using the {@link IncrementalMaxRamState} kept in the file given as third argument
+     * (the output file name followed by .state by default). Only the changed jobs are then written,
+     * to a delta file named after the output file and the run number.
+     *
+     * <p>Every mode gives the same output: the row with the maximum RAM of each job
+     * (the first one in file order when rows tie), in ascending jobID order.</p>
+     */
+    private static final String MODE = System.getProperty("merge.mode", "list");
 
     public static void main(String[] args) {
-        String inputFilePath = "/Users/ankitkumar/Desktop/testFiles/inputjob.csv";
-        String outputFilePath = "output.csv";
+        String inputFilePath = args.length > 0 ? args[0] : "/Users/ankitkumar/Desktop/testFiles/inputjob.csv";
+        String outputFilePath = args.length > 1 ? args[1] : "output.csv";
+
+        if ("streaming".equals(MODE)) {
+            mergeStreaming(inputFilePath, outputFilePath);
+            return;
+        }
+
+        if ("incremental".equals(MODE)) {
+            final String stateFilePath = args.length > 2 ? args[2] : outputFilePath + ".state";
+            mergeIncremental(inputFilePath, outputFilePath, stateFilePath);
+            return;
+        }
+
+        if ("table".equals(MODE) || "offheap".equals(MODE)) {
+            final JobEntryTable table = "table".equals(MODE) ? new HeapJobEntryTable() : OffHeapJobEntryTable.allocateDirect(1 << 16);
+            mergeTable(table, inputFilePath, outputFilePath);
+            return;
+        }
+
+        if ("mapped".equals(MODE)) {
+            mergeMapped(inputFilePath, outputFilePath);
+            return;
+        }
 
         List<JobEntry> jobEntries = readDataFromCSV(inputFilePath);
         System.out.println("------------------Input----------------");
@@ -66,6 +106,76 @@ public class MergeWorkflowWithMaxRam {
         writeDataToCSV(resultEntries, outputFilePath);
     }
 
+    /**
+     * Reduces the input file to the row with the maximum RAM for each job,
+     * parsing the file in parallel without keeping the rows in memory.
+     * The input rows are not printed, since this mode is meant for files with millions of rows.
+     */
+    private static void mergeStreaming(final String inputFilePath, final String outputFilePath) {
+        final long startNanos = System.nanoTime();
+        final var reducer = new StreamingMaxRamReducer();
+        final JobMaxRamMap result = reducer.reduce(Path.of(inputFilePath));
+        try {
+            result.writeCsv(Path.of(outputFilePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.printf(
+            "%d rows reduced to %d jobs in %.2f seconds. Results written to %s%n",
+            reducer.getRowsRead(), result.size(), (System.nanoTime() - startNanos) / 1e9, outputFilePath);
+    }
+
+    /**
+     * Loads the input file into a {@link JobEntryTable} and selects
+     * the same max RAM rows as the list-based mode.
+     */
+    private static void mergeTable(final JobEntryTable table, final String inputFilePath, final String outputFilePath) {
+        final long startNanos = System.nanoTime();
+        JobCsvParser.parseFile(Path.of(inputFilePath), table::add);
+        final JobEntryTable resultTable = table.findMaxRamForJob();
+        try {
+            resultTable.writeCsv(Path.of(outputFilePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.printf(
+            "%d rows reduced to %d jobs in %.2f seconds. Results written to %s%n",
+            table.size(), resultTable.size(), (System.nanoTime() - startNanos) / 1e9, outputFilePath);
+    }
+
+    /** Merges the rows with an {@link OffHeapJobEntryTable} mapped to a file, which is deleted afterwards. */
+    private static void mergeMapped(final String inputFilePath, final String outputFilePath) {
+        final Path tableFile = Path.of(outputFilePath + ".rows");
+        try (var table = OffHeapJobEntryTable.mapped(tableFile, 1 << 16)) {
+            mergeTable(table, inputFilePath, outputFilePath);
+        }
+
+        try {
+            Files.deleteIfExists(tableFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Updates the max RAM state with the rows appended to the input file since the last run,
+     * writing only the jobs that changed to a delta file such as {@code output.csv.delta-3}.
+     */
+    private static void mergeIncremental(final String inputFilePath, final String outputFilePath, final String stateFilePath) {
+        final long startNanos = System.nanoTime();
+        try (var state = IncrementalMaxRamState.open(Path.of(stateFilePath))) {
+            final var refreshes = state.refresh(Path.of(inputFilePath), run -> Path.of(outputFilePath + ".delta-" + run));
+            for (final var refresh : refreshes) {
+                System.out.printf(
+                    "Run %d: %d new rows (%d bytes) changed %d of %d jobs. Changes written to %s%n",
+                    refresh.run(), refresh.rowsRead(), refresh.bytesRead(), refresh.changedJobs(), state.size(), refresh.deltaFile());
+            }
+            System.out.printf("Finished in %.2f seconds%n", (System.nanoTime() - startNanos) / 1e9);
+        }
+    }
+
     private static List<JobEntry> readDataFromCSV(String filePath) {
         List<JobEntry> jobEntries = new ArrayList<>();
 
@@ -88,12 +198,13 @@ public class MergeWorkflowWithMaxRam {
     }
 
     private static List<JobEntry> removeDuplicates(List<JobEntry> jobEntries) {
-        Set<JobEntry> uniqueSet = new HashSet<>(jobEntries);
+        // Keeps the file order, so that the first of the rows tying for the max RAM is chosen
+        Set<JobEntry> uniqueSet = new LinkedHashSet<>(jobEntries);
         return new ArrayList<>(uniqueSet);
     }
 
     private static List<JobEntry> findMaxRamForJob(List<JobEntry> jobEntries) {
-        Map<Integer, JobEntry> maxRamMap = new HashMap<>();
+        Map<Integer, JobEntry> maxRamMap = new TreeMap<>();
 
         for (JobEntry entry : jobEntries) {
             int jobID = entry.jobID;
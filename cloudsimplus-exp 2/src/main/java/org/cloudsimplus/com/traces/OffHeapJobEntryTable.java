@@ -0,0 +1,193 @@
+package org.cloudsimplus.com.traces;
+
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link JobEntryTable} stored outside the Java heap, either in a direct {@link ByteBuffer}
+ * or in a file mapped into memory. Each row takes {@link #ROW_BYTES} contiguous bytes,
+ * so the table adds no garbage collection work no matter how many rows it has.
+ *
+ * <p>A single buffer holds at most {@link #MAX_ROWS} rows (about 107 million).
+ * A mapped table lets the OS page the rows to the file when they don't fit into RAM
+ * (it's used by {@code MergeWorkflowWithMaxRam} with -Dmerge.mode=mapped).
+ * Since Java only unmaps a file when its buffer is garbage collected, mappings are dropped explicitly
+ * when the buffer is remapped and when the table is closed, so the file can be truncated.</p>
+ */
+final class OffHeapJobEntryTable implements JobEntryTable, AutoCloseable {
+    static final int MAX_ROWS = Integer.MAX_VALUE / ROW_BYTES;
+
+    private static final int TASK_INDEX_OFFSET = Integer.BYTES;
+    private static final int MACHINE_ID_OFFSET = 2 * Integer.BYTES;
+    private static final int RAM_OFFSET = 3 * Integer.BYTES;
+
+    /** The file the rows are mapped to, or null when using a direct buffer. */
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    private OffHeapJobEntryTable(final FileChannel channel, final int capacity) {
+        this.channel = channel;
+        this.capacity = checkCapacity(capacity);
+        this.buffer = newBuffer(this.capacity);
+    }
+
+    /**
+     * Creates a table backed by a direct buffer.
+     * @param capacity the number of rows initially reserved
+     */
+    static OffHeapJobEntryTable allocateDirect(final int capacity) {
+        return new OffHeapJobEntryTable(null, capacity);
+    }
+
+    /**
+     * Creates a table backed by the given file, which is truncated if it already exists.
+     * @param capacity the number of rows initially reserved
+     */
+    static OffHeapJobEntryTable mapped(final Path filePath, final int capacity) {
+        try {
+            final var channel = FileChannel.open(
+                filePath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return new OffHeapJobEntryTable(channel, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void add(final int jobID, final int taskIndex, final int machineID, final double ram) {
+        if (size == capacity) {
+            grow();
+        }
+
+        final int offset = size * ROW_BYTES;
+        buffer.putInt(offset, jobID);
+        buffer.putInt(offset + TASK_INDEX_OFFSET, taskIndex);
+        buffer.putInt(offset + MACHINE_ID_OFFSET, machineID);
+        buffer.putDouble(offset + RAM_OFFSET, ram);
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int jobID(final int row) {
+        return buffer.getInt(offsetOf(row));
+    }
+
+    @Override
+    public int taskIndex(final int row) {
+        return buffer.getInt(offsetOf(row) + TASK_INDEX_OFFSET);
+    }
+
+    @Override
+    public int machineID(final int row) {
+        return buffer.getInt(offsetOf(row) + MACHINE_ID_OFFSET);
+    }
+
+    @Override
+    public double ram(final int row) {
+        return buffer.getDouble(offsetOf(row) + RAM_OFFSET);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Derived tables are always kept in direct buffers, since they hold
+     * just one row per job.
+     */
+    @Override
+    public JobEntryTable newTable(final int capacity) {
+        return allocateDirect(capacity);
+    }
+
+    /**
+     * Closes the mapped file, dropping the mapping and then truncating the file to the used rows.
+     * The table must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+
+        final ByteBuffer mapping = buffer;
+        buffer = null;
+        unmap(mapping);
+        try (channel) {
+            channel.truncate((long) size * ROW_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int offsetOf(final int row) {
+        if (row >= size) {
+            throw new IndexOutOfBoundsException("Row %d out of bounds for size %d".formatted(row, size));
+        }
+
+        return row * ROW_BYTES;
+    }
+
+    private void grow() {
+        if (capacity == MAX_ROWS) {
+            throw new IllegalStateException("An off-heap table holds at most %d rows".formatted(MAX_ROWS));
+        }
+
+        final int newCapacity = (int) Math.min(MAX_ROWS, capacity * 2L);
+        final ByteBuffer newBuffer = newBuffer(newCapacity);
+        if (channel == null) {
+            newBuffer.put(0, buffer, 0, size * ROW_BYTES);
+        } else {
+            //A mapped buffer is remapped over the same file, thus the rows are already there
+            unmap(buffer);
+        }
+
+        buffer = newBuffer;
+        capacity = newCapacity;
+    }
+
+    private ByteBuffer newBuffer(final int rows) {
+        final int bytes = rows * ROW_BYTES;
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Releases the mapping of a buffer at once, instead of when the buffer is garbage collected. */
+    private static void unmap(final ByteBuffer mapping) {
+        try {
+            final Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            ((Unsafe) field.get(null)).invokeCleaner(mapping);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to unmap the table file", e);
+        }
+    }
+
+    private static int checkCapacity(final int capacity) {
+        if (capacity < 1 || capacity > MAX_ROWS) {
+            throw new IllegalArgumentException("Capacity must be between 1 and %d".formatted(MAX_ROWS));
+        }
+
+        return capacity;
+    }
+}
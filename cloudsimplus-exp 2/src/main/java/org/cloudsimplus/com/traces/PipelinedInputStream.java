@@ -0,0 +1,144 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream on a separate thread, in large blocks handed over through a bounded queue.
+ * When the source decompresses its data (such as a {@link java.util.zip.GZIPInputStream}),
+ * disk reads and decoding run concurrently with whatever parses the bytes read from this stream.
+ *
+ * <p>The queue holds at most a fixed number of blocks, so the decoder can't
+ * get more than that ahead of the reader.</p>
+ */
+final class PipelinedInputStream extends InputStream {
+    /** Marks the end of the source (or a decoding failure). */
+    private static final byte[] END = new byte[0];
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> blocks;
+    private final Thread decoder;
+    private volatile Throwable failure;
+
+    private byte[] block = new byte[0];
+    private int position;
+    private boolean finished;
+
+    /**
+     * Starts decoding the source right away.
+     * @param name a name for the decoder thread
+     * @param blockSize the number of bytes read from the source at once
+     * @param queuedBlocks the maximum number of blocks decoded ahead of the reader
+     */
+    PipelinedInputStream(final InputStream source, final String name, final int blockSize, final int queuedBlocks) {
+        this.source = Objects.requireNonNull(source);
+        this.blocks = new ArrayBlockingQueue<>(queuedBlocks);
+        this.decoder = new Thread(() -> decode(blockSize), "decoder-" + name);
+        this.decoder.setDaemon(true);
+        this.decoder.start();
+    }
+
+    private void decode(final int blockSize) {
+        boolean closed = false;
+        try {
+            while (true) {
+                final var data = new byte[blockSize];
+                final int length = source.readNBytes(data, 0, blockSize);
+                if (length == 0) {
+                    break;
+                }
+
+                blocks.put(length == blockSize ? data : Arrays.copyOf(data, length));
+            }
+        } catch (InterruptedException e) {
+            //The stream was closed, so nobody waits for the end
+            closed = true;
+        } catch (Throwable e) {
+            //Any failure (such as a corrupted gzip stream throwing a RuntimeException) must reach the reader
+            failure = e;
+        } finally {
+            if (!closed) {
+                putEnd();
+            }
+        }
+    }
+
+    private void putEnd() {
+        try {
+            blocks.put(END);
+        } catch (InterruptedException e) {
+            //The stream was closed
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextBlock() ? block[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+
+        if (!nextBlock()) {
+            return -1;
+        }
+
+        final int count = Math.min(length, block.length - position);
+        System.arraycopy(block, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return block.length - position;
+    }
+
+    /**
+     * Makes sure there are bytes left in the current block, waiting for the decoder if needed.
+     * @return false if the end of the source was reached
+     */
+    private boolean nextBlock() throws IOException {
+        while (position == block.length) {
+            if (finished) {
+                return false;
+            }
+
+            try {
+                block = blocks.take();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the decoder", e);
+            }
+
+            if (block == END) {
+                finished = true;
+                if (failure != null) {
+                    throw failure instanceof IOException ioException ?
+                        ioException :
+                        new IOException("Decoding failed in " + decoder.getName(), failure);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        block = END;
+        position = 0;
+        decoder.interrupt();
+        source.close();
+    }
+}
@@ -0,0 +1,74 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A stable 64-bit checksum of the finished Cloudlets table (ID, VM, start time, finish time, priority and lifetime),
+ * printed at the end of the experiments so that runs can be compared by {@link ResultRegression}.
+ *
+ * <p>Cloudlets are ordered by Broker and Cloudlet ID, so the checksum doesn't depend on the finish order.
+ * Times are rounded to microseconds, so it doesn't change with floating-point noise
+ * far below the simulation time resolution.</p>
+ */
+final class ResultChecksum {
+    /** The prefix of the printed line, which {@link ResultRegression} looks for. */
+    static final String PREFIX = "Result checksum: ";
+
+    private static final double TIME_SCALE = 1_000_000;
+
+    private ResultChecksum() {/**/}
+
+    /**
+     * A row of the finished Cloudlets table, which can also come from an analytic computation
+     * such as {@link CloudletFastForward}.
+     */
+    record Row(long brokerId, long cloudletId, long vmId, double startTime, double finishTime, int priority, double lifeTime) {
+        static Row of(final Cloudlet cloudlet) {
+            return new Row(
+                cloudlet.getBroker().getId(), cloudlet.getId(), cloudlet.getVm().getId(),
+                cloudlet.getStartTime(), cloudlet.getFinishTime(), cloudlet.getPriority(), cloudlet.getLifeTime());
+        }
+    }
+
+    static long of(final List<? extends Cloudlet> finishedCloudlets) {
+        return ofRows(finishedCloudlets.stream().map(Row::of).toList());
+    }
+
+    static long ofRows(final List<Row> rows) {
+        final var sorted = new ArrayList<Row>(rows);
+        sorted.sort(Comparator.comparingLong(Row::brokerId).thenComparingLong(Row::cloudletId));
+        long hash = sorted.size();
+        for (final Row row : sorted) {
+            hash = mix(hash, row.cloudletId());
+            hash = mix(hash, row.vmId());
+            hash = mix(hash, Math.round(row.startTime() * TIME_SCALE));
+            hash = mix(hash, Math.round(row.finishTime() * TIME_SCALE));
+            hash = mix(hash, row.priority());
+            hash = mix(hash, Math.round(row.lifeTime() * TIME_SCALE));
+        }
+
+        return hash;
+    }
+
+    /** Prints the checksum of the finished Cloudlets as a line starting with {@link #PREFIX}. */
+    static void print(final List<? extends Cloudlet> finishedCloudlets) {
+        printRows(finishedCloudlets.stream().map(Row::of).toList());
+    }
+
+    /** Prints the checksum of the finished Cloudlets table rows as a line starting with {@link #PREFIX}. */
+    static void printRows(final List<Row> rows) {
+        System.out.printf("%n%s%016x (%d Cloudlets, seed %d)%n", PREFIX, ofRows(rows), rows.size(), ExperimentRandom.SEED);
+    }
+
+    /** Combines a value into the hash with the SplitMix64 finalizer, so that the order of the values matters. */
+    private static long mix(final long hash, final long value) {
+        long x = (hash ^ value) + 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,134 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs an experiment with a performance optimization and without it (the baseline) side by side,
+ * each one in its own JVM with the same -Dexperiment.seed, and compares the {@link ResultChecksum}s they print.
+ * An optimization can only be accepted if the finished Cloudlets table doesn't change.
+ *
+ * <p>Usage: {@code ResultRegression <experiment class> <candidate JVM options...>},
+ * such as {@code ResultRegression TaskEvents -Dtraces.allocation.indexed=true}.
+ * The baseline options are set with -Dregression.baseline (separated by spaces).
+ * Without arguments, the optimizations in {@link #DEFAULT_COMPARISONS} are checked.
+ * The output of each run is kept in a temporary file, whose path is printed.
+ * Wall times are measured while both runs share the machine, so they are just a rough comparison.</p>
+ *
+ * <p>The process exits with status 1 if any checksum differs or is missing.</p>
+ */
+public class ResultRegression {
+    /**
+     * An experiment run with two sets of JVM options.
+     * @param experiment the experiment class (its simple name, for classes in this package)
+     */
+    private record Comparison(String experiment, List<String> baselineOptions, List<String> candidateOptions) {}
+
+    /** The output and wall time of a run, and the checksum it printed (or null if it didn't print one). */
+    private record Run(Path output, String checksum, int exitCode, double wallSeconds) {}
+
+    /** A started run, with the time it started. */
+    private record Started(Process process, Path output, long startNanos) {}
+
+    /**
+     * Optimizations expected to give exactly the same table:
+     * the results sink and the {@link CloudletFastForward} of the scheduler experiments
+     * and the {@link VmAllocationPolicyIndexed} of the trace experiments.
+     * {@link CloudletSchedulerFastFair} is not here, since it may order Cloudlets with very close virtual runtimes
+     * differently than the CFS scheduler: it's checked with a tolerance by {@link FairSchedulerComparison}.
+     * Neither is the parallel run of {@link MachineEvents} (-Dtraces.parallel), which changes the model.
+     */
+    private static final List<Comparison> DEFAULT_COMPARISONS = List.of(
+        new Comparison("SchedulerSpaceShared", List.of(), List.of("-Dtraces.results=space-shared-results.csv")),
+        new Comparison("SchedulerTimeShared", List.of(), List.of("-Dtraces.results=time-shared-results.csv")),
+        new Comparison("SchedulerSpaceShared", List.of(), List.of("-Dscheduler.fastforward=true")),
+        new Comparison("SchedulerTimeShared", List.of(), List.of("-Dscheduler.fastforward=true")),
+        new Comparison("MachineEvents", List.of(), List.of("-Dtraces.allocation.indexed=true")),
+        new Comparison("TaskEvents", List.of(), List.of("-Dtraces.allocation.indexed=true")));
+
+    public static void main(String[] args) {
+        final List<Comparison> comparisons = args.length == 0 ?
+            DEFAULT_COMPARISONS :
+            List.of(new Comparison(args[0], baselineOptions(), List.of(args).subList(1, args.length)));
+
+        System.out.printf("%-32s %-18s %-18s %12s %12s %s%n",
+            "Experiment", "Baseline checksum", "Candidate checksum", "Baseline (s)", "Candidate (s)", "Result");
+        boolean allEqual = true;
+        for (final Comparison comparison : comparisons) {
+            allEqual &= compare(comparison);
+        }
+
+        System.out.println(allEqual ? "All checksums match" : "Some checksums drifted");
+        if (!allEqual) {
+            System.exit(1);
+        }
+    }
+
+    private static List<String> baselineOptions() {
+        final String options = System.getProperty("regression.baseline", "").trim();
+        return options.isEmpty() ? List.of() : Arrays.asList(options.split("\\s+"));
+    }
+
+    private static boolean compare(final Comparison comparison) {
+        final String mainClass = comparison.experiment().contains(".") ?
+            comparison.experiment() :
+            ResultRegression.class.getPackageName() + "." + comparison.experiment();
+        try {
+            final var baseline = start(mainClass, comparison.baselineOptions());
+            final var candidate = start(mainClass, comparison.candidateOptions());
+            final Run baselineRun = finish(baseline);
+            final Run candidateRun = finish(candidate);
+
+            final boolean equal = baselineRun.checksum() != null && baselineRun.checksum().equals(candidateRun.checksum());
+            System.out.printf("%-32s %-18s %-18s %12.2f %12.2f %s%n",
+                comparison.experiment(), baselineRun.checksum(), candidateRun.checksum(),
+                baselineRun.wallSeconds(), candidateRun.wallSeconds(), equal ? "OK" : "DRIFT");
+            if (!equal) {
+                System.out.printf("\tbaseline %s (exit code %d): %s%n",
+                    comparison.baselineOptions(), baselineRun.exitCode(), baselineRun.output());
+                System.out.printf("\tcandidate %s (exit code %d): %s%n",
+                    comparison.candidateOptions(), candidateRun.exitCode(), candidateRun.output());
+            }
+
+            return equal;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running " + mainClass, e);
+        }
+    }
+
+    private static Started start(final String mainClass, final List<String> options) throws IOException {
+        final var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Dexperiment.seed=" + ExperimentRandom.SEED);
+        command.add("-Dtraces.log.level=WARN");
+        command.addAll(options);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+
+        final Path output = Files.createTempFile("regression-", ".log");
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output.toFile()).start();
+        return new Started(process, output, System.nanoTime());
+    }
+
+    private static Run finish(final Started started) throws IOException, InterruptedException {
+        final int exitCode = started.process().waitFor();
+        final double wallSeconds = (System.nanoTime() - started.startNanos()) / 1e9;
+        String checksum = null;
+        for (final String line : Files.readAllLines(started.output())) {
+            if (line.startsWith(ResultChecksum.PREFIX)) {
+                checksum = line.substring(ResultChecksum.PREFIX.length()).split(" ")[0];
+            }
+        }
+
+        return new Run(started.output(), checksum, exitCode, wallSeconds);
+    }
+}
@@ -0,0 +1,260 @@
+package org.cloudsimplus.com.traces;
+
+import ch.qos.logback.classic.Level;
+import org.cloudsimplus.brokers.DatacenterBrokerSimple;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.cloudlets.CloudletSimple;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.DatacenterSimple;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.hosts.HostSimple;
+import org.cloudsimplus.resources.Pe;
+import org.cloudsimplus.resources.PeSimple;
+import org.cloudsimplus.schedulers.vm.VmSchedulerTimeShared;
+import org.cloudsimplus.util.Log;
+import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+import org.cloudsimplus.vms.Vm;
+import org.cloudsimplus.vms.VmSimple;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Runs the scheduler experiments (as in {@link SchedulerSpaceShared}, {@link SchedulerTimeShared}
+ * and {@link CompletelyFairScheduler}) for every point of a parameter grid:
+ * scheduler type × host count × cloudlet count × PEs per host × seed.
+ * Each point builds its own {@link CloudSimPlus} instance and runs on its own thread,
+ * using all cores, and the results of all seeds are aggregated into a single table.
+ *
+ * <p>The grid is set by system properties holding comma-separated values, such as
+ * {@code -Dsweep.schedulers=TIME_SHARED,COMPLETELY_FAIR -Dsweep.hosts=1,4 -Dsweep.cloudlets=32,1024
+ * -Dsweep.pes=4,16 -Dsweep.seeds=5 -Dsweep.threads=8}.</p>
+ *
+ * <p>Each host has a single VM using all its PEs. As in {@link CompletelyFairScheduler},
+ * Cloudlets use 1 PE and the first half of them has priority 4.
+ * The seed just changes the Cloudlet lengths, which vary by ±50% around {@link #CLOUDLET_LENGTH}.
+ * Each seed of the grid is a stream of the {@link ExperimentRandom} set with -Dexperiment.seed.</p>
+ */
+public class SchedulerSweep {
+    private static final long HOST_MIPS = 1000;
+    private static final long HOST_RAM = 2048; //in Megabytes
+    private static final long HOST_BW = 10000; //in Megabits/s
+    private static final long HOST_STORAGE = 1000000; //in Megabytes
+
+    private static final int VM_RAM = 512; //in Megabytes
+    private static final long VM_BW = 1000; //in Megabits/s
+    private static final long VM_SIZE = 10000; //in Megabytes
+
+    private static final int CLOUDLET_PES = 1;
+    private static final int CLOUDLET_LENGTH = 10000; //in MI
+
+    /**
+     * A point of the sweep grid.
+     * @param pes the number of PEs of each host (and of its VM)
+     */
+    record SweepPoint(SchedulerType scheduler, int hosts, int cloudlets, int pes, long seed) {}
+
+    /**
+     * The results of a single simulation.
+     * @param makespan the time the last Cloudlet finished
+     * @param meanWait the mean time Cloudlets waited to start
+     * @param meanLifetime the mean time from the start to the finish of Cloudlets
+     * @param wallSeconds the time taken to run the simulation
+     */
+    record PointResult(SweepPoint point, int finished, double makespan, double meanWait, double maxWait,
+                       double meanLifetime, double wallSeconds) {}
+
+    public static void main(String[] args) {
+        Log.setLevel(Level.WARN);
+        final List<SweepPoint> grid = createGrid();
+        final int threads = Integer.getInteger("sweep.threads", Runtime.getRuntime().availableProcessors());
+        System.out.printf("Running %d simulations on %d threads. Started at %s%n%n", grid.size(), threads, LocalTime.now());
+
+        final long startNanos = System.nanoTime();
+        final List<PointResult> results = runAll(grid, threads);
+        printResults(results);
+        System.out.printf("%nSweep finished at %s. Execution time: %.2f seconds%n", LocalTime.now(), (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    private static List<SweepPoint> createGrid() {
+        final var schedulers = Arrays.stream(System.getProperty("sweep.schedulers", "SPACE_SHARED,TIME_SHARED,COMPLETELY_FAIR").split(","))
+                                     .map(name -> SchedulerType.valueOf(name.strip()))
+                                     .toList();
+        final int[] hosts = intList("sweep.hosts", "1,2");
+        final int[] cloudlets = intList("sweep.cloudlets", "32,128");
+        final int[] pes = intList("sweep.pes", "4,16");
+        final int seeds = Integer.getInteger("sweep.seeds", 3);
+
+        final var grid = new ArrayList<SweepPoint>();
+        for (final SchedulerType scheduler : schedulers) {
+            for (final int hostCount : hosts) {
+                for (final int cloudletCount : cloudlets) {
+                    for (final int peCount : pes) {
+                        LongStream.range(0, seeds).forEach(seed -> grid.add(new SweepPoint(scheduler, hostCount, cloudletCount, peCount, seed)));
+                    }
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    private static int[] intList(final String property, final String defaultValue) {
+        return Arrays.stream(System.getProperty(property, defaultValue).split(",")).mapToInt(value -> Integer.parseInt(value.strip())).toArray();
+    }
+
+    /**
+     * Runs each point on a thread pool.
+     * @return the results in the same order as the grid
+     */
+    static List<PointResult> runAll(final List<SweepPoint> grid, final int threads) {
+        final var pool = Executors.newFixedThreadPool(threads);
+        try {
+            final var futures = new ArrayList<Future<PointResult>>(grid.size());
+            for (final SweepPoint point : grid) {
+                futures.add(pool.submit(() -> run(point)));
+            }
+
+            final var results = new ArrayList<PointResult>(grid.size());
+            for (final Future<PointResult> future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the sweep", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the simulation for a single point and computes its metrics.
+     */
+    static PointResult run(final SweepPoint point) {
+        final long startNanos = System.nanoTime();
+        final List<Cloudlet> finished = simulate(point);
+        double makespan = 0;
+        double totalWait = 0;
+        double maxWait = 0;
+        double totalLifetime = 0;
+        for (final Cloudlet cloudlet : finished) {
+            final double wait = cloudlet.getStartTime() - cloudlet.getSubmissionDelay();
+            makespan = Math.max(makespan, cloudlet.getFinishTime());
+            maxWait = Math.max(maxWait, wait);
+            totalWait += wait;
+            totalLifetime += cloudlet.getFinishTime() - cloudlet.getStartTime();
+        }
+
+        final int count = Math.max(1, finished.size());
+        return new PointResult(
+            point, finished.size(), makespan, totalWait / count, maxWait, totalLifetime / count,
+            (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Builds and runs the simulation for a single point.
+     * Everything it uses is created here, so points can run concurrently.
+     * @return the finished Cloudlets
+     */
+    static List<Cloudlet> simulate(final SweepPoint point) {
+        final var simulation = new CloudSimPlus();
+
+        final var hostList = new ArrayList<Host>(point.hosts());
+        for (int i = 0; i < point.hosts(); i++) {
+            hostList.add(createHost(point.pes()));
+        }
+        new DatacenterSimple(simulation, hostList);
+
+        final var broker = new DatacenterBrokerSimple(simulation);
+        final var vmList = new ArrayList<Vm>(point.hosts());
+        for (int i = 0; i < point.hosts(); i++) {
+            vmList.add(new VmSimple(i, HOST_MIPS, point.pes())
+                .setRam(VM_RAM).setBw(VM_BW).setSize(VM_SIZE)
+                .setCloudletScheduler(point.scheduler().newScheduler()));
+        }
+
+        final var random = ExperimentRandom.stream(point.seed());
+        final var cloudletList = new ArrayList<Cloudlet>(point.cloudlets());
+        final var utilizationCpu = new UtilizationModelFull();
+        final var utilizationRam = new UtilizationModelDynamic(0.2);
+        for (int i = 0; i < point.cloudlets(); i++) {
+            final long length = (long) (CLOUDLET_LENGTH * (0.5 + random.nextDouble()));
+            cloudletList.add(new CloudletSimple(i, length, CLOUDLET_PES)
+                .setFileSize(300)
+                .setOutputSize(300)
+                .setUtilizationModelCpu(utilizationCpu)
+                .setUtilizationModelRam(utilizationRam)
+                .setPriority(i < point.cloudlets() / 2 ? 4 : 0));
+        }
+
+        broker.submitVmList(vmList);
+        broker.submitCloudletList(cloudletList);
+        simulation.start();
+        return broker.getCloudletFinishedList();
+    }
+
+    private static Host createHost(final int pes) {
+        final var peList = new ArrayList<Pe>(pes);
+        for (int i = 0; i < pes; i++) {
+            peList.add(new PeSimple(HOST_MIPS));
+        }
+
+        return new HostSimple(HOST_RAM, HOST_BW, HOST_STORAGE, peList).setVmScheduler(new VmSchedulerTimeShared());
+    }
+
+    /**
+     * Prints one row for each grid point (aggregating all seeds),
+     * with the mean and standard deviation of each metric across seeds.
+     */
+    private static void printResults(final List<PointResult> results) {
+        final var groups = new LinkedHashMap<SweepPoint, List<PointResult>>();
+        for (final PointResult result : results) {
+            final SweepPoint point = result.point();
+            groups.computeIfAbsent(new SweepPoint(point.scheduler(), point.hosts(), point.cloudlets(), point.pes(), 0), p -> new ArrayList<>()).add(result);
+        }
+
+        System.out.printf(
+            "%-16s %5s %9s %4s %5s %9s | %-19s | %-19s | %9s | %-19s | %8s%n",
+            "Scheduler", "Hosts", "Cloudlets", "PEs", "Seeds", "Finished",
+            "Makespan (s)", "Mean wait (s)", "Max wait", "Mean lifetime (s)", "Wall (s)");
+        for (final Map.Entry<SweepPoint, List<PointResult>> group : groups.entrySet()) {
+            final SweepPoint point = group.getKey();
+            final List<PointResult> seeds = group.getValue();
+            System.out.printf(
+                "%-16s %5d %9d %4d %5d %9.1f | %s | %s | %9.2f | %s | %8.3f%n",
+                point.scheduler(), point.hosts(), point.cloudlets(), point.pes(), seeds.size(),
+                mean(seeds, PointResult::finished),
+                meanAndStdDev(seeds, PointResult::makespan), meanAndStdDev(seeds, PointResult::meanWait),
+                mean(seeds, PointResult::maxWait), meanAndStdDev(seeds, PointResult::meanLifetime),
+                mean(seeds, PointResult::wallSeconds));
+        }
+    }
+
+    private static double mean(final List<PointResult> results, final ToDoubleFunction<PointResult> metric) {
+        return results.stream().mapToDouble(metric).average().orElse(0);
+    }
+
+    private static String meanAndStdDev(final List<PointResult> results, final ToDoubleFunction<PointResult> metric) {
+        final double mean = mean(results, metric);
+        final double variance = results.stream().mapToDouble(metric).map(value -> (value - mean) * (value - mean)).sum() / results.size();
+        return "%9.2f ± %7.2f".formatted(mean, Math.sqrt(variance));
+    }
+}
@@ -59,12 +59,43 @@ public class SchedulerTimeShared {
         vmList = createVms();
         cloudletList = createCloudlets();
         broker0.submitVmList(vmList);
+        if (CloudletFastForward.ENABLED && CloudletFastForward.isSupported(cloudletList)) {
+            //Just creates the VMs, whose creation time is when the Broker would submit the Cloudlets
+            simulation.start();
+            final var fastForward = CloudletFastForward.run(CloudletFastForward.Policy.TIME_SHARED, vmList, cloudletList);
+            if (CloudletResultSink.printTables()) {
+                fastForward.print();
+            }
+            fastForward.printChecksum(broker0);
+            return;
+        }
+
         broker0.submitCloudletList(cloudletList);
 
+        final var results = CloudletResultSink.fromProperties();
+        if (results != null) {
+            cloudletList.forEach(results::track);
+        }
+
+        final long[] events = {0};
+        if (CloudletFastForward.VALIDATE) {
+            simulation.addOnEventProcessingListener(evt -> events[0]++);
+        }
+
         simulation.start();
 
         final var cloudletFinishedList = broker0.getCloudletFinishedList();
-        new CloudletsTableBuilder(cloudletFinishedList).build();
+        if (results != null) {
+            results.close();
+        }
+        if (CloudletResultSink.printTables()) {
+            new CloudletsTableBuilder(cloudletFinishedList).build();
+        }
+        ResultChecksum.print(cloudletFinishedList);
+        if (CloudletFastForward.VALIDATE) {
+            CloudletFastForward.run(CloudletFastForward.Policy.TIME_SHARED, vmList, cloudletList)
+                               .printDifferences(cloudletFinishedList, events[0]);
+        }
     }
 
     /**
@@ -0,0 +1,29 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.schedulers.cloudlet.CloudletScheduler;
+import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerCompletelyFair;
+import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerSpaceShared;
+import org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerTimeShared;
+
+import java.util.function.Supplier;
+
+/**
+ * The CloudletScheduler policies compared by the scheduler experiments.
+ */
+enum SchedulerType {
+    SPACE_SHARED(CloudletSchedulerSpaceShared::new),
+    TIME_SHARED(CloudletSchedulerTimeShared::new),
+    COMPLETELY_FAIR(CloudletSchedulerCompletelyFair::new),
+    FAST_FAIR(CloudletSchedulerFastFair::new);
+
+    private final Supplier<CloudletScheduler> factory;
+
+    SchedulerType(final Supplier<CloudletScheduler> factory) {
+        this.factory = factory;
+    }
+
+    /** @return a new scheduler instance, since each VM needs its own */
+    CloudletScheduler newScheduler() {
+        return factory.get();
+    }
+}
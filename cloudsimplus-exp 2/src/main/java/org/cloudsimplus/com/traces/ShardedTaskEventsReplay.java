@@ -0,0 +1,160 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.brokers.DatacenterBroker;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.Datacenter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Replays Google task events and task usage trace files as independent sub-simulations (shards),
+ * each one with its own {@link CloudSimPlus} instance, running on its own thread.
+ * Users (and so their Brokers) are assigned to shards by the hash of their username,
+ * and the Hosts are split evenly between shards.
+ * Each shard is a {@link LazyTaskEventsReplay} which reads the whole trace files,
+ * keeping just the events of its own users and the usage rows of their tasks.
+ *
+ * <p><b>Accuracy contract.</b> Within a shard, the simulation is the same as replaying just its users
+ * on its own Hosts. Across shards, nothing is shared:</p>
+ * <ul>
+ *   <li>users in different shards never compete for the same Host,
+ *   so VMs of a user can't use free capacity in another shard's Hosts
+ *   (waiting times may be higher than in a single simulation when a shard is overloaded);</li>
+ *   <li>VMs of users in different shards never share a Host,
+ *   so there is no interference between them (waiting times may be lower);</li>
+ *   <li>each shard has its own clock and there are no events between shards.</li>
+ * </ul>
+ * <p>Results match a single simulation exactly only when placements never mix users of different shards
+ * and each shard's Hosts are enough for its users, such as when users' VMs fit in their shard's Hosts.
+ * Compare per-broker results against a single-shard run to check the error for a given trace.</p>
+ */
+final class ShardedTaskEventsReplay {
+    /**
+     * A sub-simulation.
+     * @param hosts the number of Hosts in the shard's Datacenter
+     * @param wallSeconds the time taken to run the shard
+     */
+    record Shard(int index, int hosts, LazyTaskEventsReplay replay, double wallSeconds) {}
+
+    private final int shardCount;
+    private final int totalHosts;
+    private final Path taskEventsFile;
+    private final Path taskUsageFile;
+    private final double windowSecs;
+    private final BiFunction<CloudSimPlus, Integer, Datacenter> datacenterFactory;
+    private final IntFunction<Function<TaskEventRow, Cloudlet>> cloudletFactory;
+    private final Consumer<DatacenterBroker> brokerInitializer;
+    private final List<Shard> shards = new ArrayList<>();
+
+    /**
+     * @param datacenterFactory creates the Datacenter of a shard with a given number of Hosts
+     * @param cloudletFactory gets, for a shard index, the function creating the Cloudlets for the SUBMIT events of that shard
+     *                        (called once by each shard, from its own thread), so that shards don't share Cloudlet state
+     * @param brokerInitializer called for each Broker created for a new user (called concurrently by the shards)
+     * @see LazyTaskEventsReplay
+     */
+    ShardedTaskEventsReplay(
+        final int shardCount, final int totalHosts,
+        final Path taskEventsFile, final Path taskUsageFile, final double windowSecs,
+        final BiFunction<CloudSimPlus, Integer, Datacenter> datacenterFactory,
+        final IntFunction<Function<TaskEventRow, Cloudlet>> cloudletFactory, final Consumer<DatacenterBroker> brokerInitializer)
+    {
+        if (shardCount < 1 || shardCount > totalHosts) {
+            throw new IllegalArgumentException("The number of shards must be between 1 and the number of Hosts (%d)".formatted(totalHosts));
+        }
+
+        this.shardCount = shardCount;
+        this.totalHosts = totalHosts;
+        this.taskEventsFile = taskEventsFile;
+        this.taskUsageFile = taskUsageFile;
+        this.windowSecs = windowSecs;
+        this.datacenterFactory = datacenterFactory;
+        this.cloudletFactory = cloudletFactory;
+        this.brokerInitializer = brokerInitializer;
+    }
+
+    /** @return the shard of a user */
+    int shardOf(final String username) {
+        return Math.floorMod(username.hashCode(), shardCount);
+    }
+
+    /** @return the number of Hosts of a shard, spreading the remainder over the first shards */
+    int hostsOf(final int shard) {
+        return totalHosts / shardCount + (shard < totalHosts % shardCount ? 1 : 0);
+    }
+
+    /**
+     * Runs all shards until they finish, using a thread pool.
+     * @return the shards, in index order
+     */
+    List<Shard> run(final int threads) {
+        final var pool = Executors.newFixedThreadPool(Math.min(threads, shardCount));
+        try {
+            final var futures = new ArrayList<Future<Shard>>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                final int index = i;
+                futures.add(pool.submit(() -> runShard(index)));
+            }
+
+            for (final Future<Shard> future : futures) {
+                shards.add(future.get());
+            }
+
+            return shards;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Shard runShard(final int index) {
+        final long startNanos = System.nanoTime();
+        final var simulation = new CloudSimPlus();
+        final int hosts = hostsOf(index);
+        final Datacenter datacenter = datacenterFactory.apply(simulation, hosts);
+        final var replay = new LazyTaskEventsReplay(
+            simulation, datacenter, taskEventsFile, taskUsageFile, windowSecs,
+            cloudletFactory.apply(index), brokerInitializer, username -> shardOf(username) == index);
+        replay.start();
+        simulation.start();
+        return new Shard(index, hosts, replay, (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /** @return the Brokers of all shards, ordered by name (since Broker IDs are only unique within a shard) */
+    List<DatacenterBroker> getBrokers() {
+        return shards.stream()
+                     .flatMap(shard -> shard.replay().getBrokers().stream())
+                     .sorted(Comparator.comparing(DatacenterBroker::getName))
+                     .toList();
+    }
+
+    void printSummary() {
+        System.out.printf("%n%5s %5s %7s %10s %10s %10s%n", "Shard", "Hosts", "Brokers", "Submitted", "Terminated", "Wall (s)");
+        for (final Shard shard : shards) {
+            final LazyTaskEventsReplay replay = shard.replay();
+            System.out.printf("%5d %5d %7d %10d %10d %10.3f%n",
+                shard.index(), shard.hosts(), replay.getBrokers().size(),
+                replay.getSubmittedCloudlets(), replay.getTerminatedCloudlets(), shard.wallSeconds());
+        }
+        System.out.println();
+    }
+}
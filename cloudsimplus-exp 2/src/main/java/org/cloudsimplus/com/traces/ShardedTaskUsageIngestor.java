@@ -0,0 +1,312 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Ingests a Google task usage trace split into many part files
+ * (such as the {@code part-00000-of-00500.csv} files of the Google cluster trace).
+ * The parts (shards) are parsed concurrently on a bounded worker pool,
+ * keeping only the rows of tasks that have a Cloudlet, and each shard is (stably) sorted by timestamp
+ * by its own worker. The rows of all shards are then merged deterministically, ordered by timestamp, then by shard (in file name order),
+ * then by their position inside the shard, so that the result doesn't depend on thread scheduling.
+ */
+final class ShardedTaskUsageIngestor {
+    /**
+     * Parsing results of a single shard.
+     * @param rows the rows kept, sorted by timestamp (rows with the same timestamp keep the file order)
+     * @param rowsRead the number of rows read
+     * @param elapsedNanos the time spent reading and parsing the shard
+     */
+    record ShardResult(Path shard, List<TaskUsageRow> rows, long rowsRead, long elapsedNanos) {
+        double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+        }
+    }
+
+    private final List<Path> shards;
+    private final int threads;
+    private final List<ShardResult> results = new ArrayList<>();
+
+    /**
+     * @param shards the part files, in the order used to break timestamp ties
+     * @param threads the maximum number of shards parsed at once
+     */
+    ShardedTaskUsageIngestor(final List<Path> shards, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1");
+        }
+
+        this.shards = List.copyOf(shards);
+        this.threads = threads;
+    }
+
+    /**
+     * Gets the part files selected by a path, which may be:
+     * a directory (all its files), a glob such as {@code traces/task_usage/part-*.csv}
+     * (matched against the file names inside the parent directory) or a single file.
+     * @return the matching files, sorted by name
+     */
+    static List<Path> resolveShards(final String pathOrGlob) {
+        final var path = Path.of(pathOrGlob);
+        if (Files.isDirectory(path)) {
+            return listFiles(path, file -> true);
+        }
+
+        final String fileName = path.getFileName().toString();
+        if (fileName.chars().noneMatch(c -> c == '*' || c == '?' || c == '[' || c == '{')) {
+            return List.of(path);
+        }
+
+        final var matcher = FileSystems.getDefault().getPathMatcher("glob:" + fileName);
+        final Path dir = path.getParent() == null ? Path.of(".") : path.getParent();
+        return listFiles(dir, file -> matcher.matches(file.getFileName()));
+    }
+
+    private static List<Path> listFiles(final Path dir, final Predicate<Path> filter) {
+        try (Stream<Path> files = Files.list(dir)) {
+            final List<Path> shards = files.filter(Files::isRegularFile).filter(filter).sorted().toList();
+            if (shards.isEmpty()) {
+                throw new IllegalArgumentException("No trace files found in " + dir);
+            }
+
+            return shards;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Concatenates the part files into a single stream, in the given order.
+     * Useful for readers that process a single file, as the task events parts
+     * are split by time and so concatenating them keeps the timestamp order.
+     * A line break is added after a part not ending with one, so its last line isn't merged with the first line of the next part.
+     */
+    static InputStream concatenate(final List<Path> shards) {
+        final Iterator<Path> iterator = shards.iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return new LineTerminatedInputStream(TraceInputStreams.open(iterator.next()));
+            }
+        });
+    }
+
+    /** A stream ending with a line break, adding one at the end when the wrapped stream doesn't end with it. */
+    private static final class LineTerminatedInputStream extends FilterInputStream {
+        private int last = '\n';
+        private boolean terminated;
+
+        private LineTerminatedInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (terminated) {
+                return -1;
+            }
+
+            final int value = in.read();
+            if (value != -1) {
+                last = value;
+                return value;
+            }
+
+            terminated = true;
+            return last == '\n' ? -1 : '\n';
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (terminated) {
+                return -1;
+            }
+
+            final int count = in.read(buffer, offset, length);
+            if (count > 0) {
+                last = buffer[offset + count - 1];
+                return count;
+            }
+
+            terminated = true;
+            if (last == '\n') {
+                return -1;
+            }
+
+            buffer[offset] = '\n';
+            return 1;
+        }
+
+        /** Reads the skipped bytes, instead of skipping them in the wrapped stream, so that the last one is known. */
+        @Override
+        public long skip(final long count) throws IOException {
+            final var buffer = new byte[(int) Math.min(Math.max(count, 0), 8192)];
+            long skipped = 0;
+            int read;
+            while (skipped < count && (read = read(buffer, 0, (int) Math.min(buffer.length, count - skipped))) > 0) {
+                skipped += read;
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return terminated ? 0 : in.available();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * Parses all shards and sends the rows of the selected tasks to the consumer, in timestamp order.
+     * @param taskFilter selects the tasks to keep, by their {@link TaskEventRow#taskKey(long, long) key}.
+     *                   It's called from many threads at once, thus it must not change any state.
+     * @param consumer receives the merged rows, from the calling thread
+     * @return the number of rows sent to the consumer
+     */
+    long ingest(final LongPredicate taskFilter, final Consumer<? super TaskUsageRow> consumer) {
+        results.clear();
+        results.addAll(parseShards(taskFilter));
+        return merge(consumer);
+    }
+
+    private List<ShardResult> parseShards(final LongPredicate taskFilter) {
+        final ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, shards.size()));
+        try {
+            final var futures = new ArrayList<Future<ShardResult>>(shards.size());
+            for (final Path shard : shards) {
+                futures.add(pool.submit(() -> parseShard(shard, taskFilter)));
+            }
+
+            final var parsed = new ArrayList<ShardResult>(shards.size());
+            for (final Future<ShardResult> future : futures) {
+                parsed.add(future.get());
+            }
+
+            return parsed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing the trace shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ShardResult parseShard(final Path shard, final LongPredicate taskFilter) {
+        final long start = System.nanoTime();
+        final var rows = new ArrayList<TaskUsageRow>();
+        long rowsRead = 0;
+        try (BufferedReader reader = TraceInputStreams.newBufferedReader(shard)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.charAt(0) == '#') {
+                    continue;
+                }
+
+                rowsRead++;
+                final TaskUsageRow row = TaskUsageRow.parse(line);
+                if (taskFilter.test(row.taskKey())) {
+                    rows.add(row);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        //Almost free when the shard is already ordered, as in the Google traces
+        rows.sort(Comparator.comparingLong(TaskUsageRow::timestamp));
+        return new ShardResult(shard, rows, rowsRead, System.nanoTime() - start);
+    }
+
+    /** K-way merge of the shard rows, ordered by (timestamp, shard, row). */
+    private long merge(final Consumer<? super TaskUsageRow> consumer) {
+        // Each cursor is {shard, row}
+        final var heads = new PriorityQueue<int[]>(
+            Math.max(1, results.size()),
+            Comparator.<int[]>comparingLong(cursor -> rowAt(cursor).timestamp()).thenComparingInt(cursor -> cursor[0]));
+        for (int shard = 0; shard < results.size(); shard++) {
+            if (!results.get(shard).rows().isEmpty()) {
+                heads.add(new int[]{shard, 0});
+            }
+        }
+
+        long count = 0;
+        while (!heads.isEmpty()) {
+            final int[] cursor = heads.poll();
+            consumer.accept(rowAt(cursor));
+            count++;
+            if (++cursor[1] < results.get(cursor[0]).rows().size()) {
+                heads.add(cursor);
+            }
+        }
+
+        return count;
+    }
+
+    private TaskUsageRow rowAt(final int[] cursor) {
+        return results.get(cursor[0]).rows().get(cursor[1]);
+    }
+
+    /** @return the parsing results of each shard from the last {@link #ingest(LongPredicate, Consumer)} */
+    List<ShardResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    void printReport() {
+        System.out.printf("%-40s %12s %12s %10s %14s%n", "Shard", "Rows", "Kept", "Seconds", "Rows/second");
+        long totalRows = 0;
+        long totalNanos = 0;
+        for (final ShardResult result : results) {
+            System.out.printf(
+                "%-40s %12d %12d %10.2f %14.0f%n", result.shard().getFileName(), result.rowsRead(), result.rows().size(),
+                result.elapsedNanos() / 1e9, result.rowsPerSecond());
+            totalRows += result.rowsRead();
+            totalNanos += result.elapsedNanos();
+        }
+
+        System.out.printf(
+            "%d rows in %d shards parsed by up to %d threads (%.0f rows/second per thread on average).%n",
+            totalRows, results.size(), threads, totalNanos == 0 ? 0 : totalRows * 1e9 / totalNanos);
+    }
+}
@@ -0,0 +1,58 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Utilization models shared by all Cloudlets created with the same values,
+ * instead of new CPU, RAM and BW model objects for each Cloudlet,
+ * which for million-task trace replays take more heap than the Cloudlets themselves.
+ *
+ * <p>Trace requests are normalized values with few distinct numbers, so there are few {@link Shared} models.
+ * A shared model must never be changed in place: the first time the usage of a Cloudlet changes,
+ * {@link TaskUsageUpdater} replaces it by a {@link Shared#copy() copy} of its own (copy-on-write).
+ * Each simulation must have its own instance (so each shard of a sharded replay has one),
+ * since utilization models refer to a simulation and aren't meant to be used from several threads.</p>
+ */
+final class SharedUtilizationModels {
+    /** A dynamic model shared by several Cloudlets, whose current utilization is never changed. */
+    static final class Shared extends UtilizationModelDynamic {
+        private final double initialUtilization;
+        private final double maxUtilization;
+
+        private Shared(final double initialUtilization, final double maxUtilization) {
+            super(initialUtilization, maxUtilization);
+            this.initialUtilization = initialUtilization;
+            this.maxUtilization = maxUtilization;
+        }
+
+        /** @return a new model, private to a single Cloudlet, with the same initial and maximum utilization */
+        UtilizationModelDynamic copy() {
+            return new UtilizationModelDynamic(initialUtilization, maxUtilization);
+        }
+    }
+
+    private record Key(double initialUtilization, double maxUtilization) {}
+
+    private final UtilizationModelFull full = new UtilizationModelFull();
+    private final Map<Key, Shared> dynamicModels = new HashMap<>();
+    private long requests;
+
+    UtilizationModelFull full() {
+        return full;
+    }
+
+    /** @return the shared model with the given initial and maximum utilization (as percentages from 0 to 1) */
+    Shared dynamic(final double initialUtilization, final double maxUtilization) {
+        requests++;
+        return dynamicModels.computeIfAbsent(
+            new Key(initialUtilization, maxUtilization), key -> new Shared(key.initialUtilization(), key.maxUtilization()));
+    }
+
+    void printSummary() {
+        System.out.printf("%nShared utilization models: %d dynamic models for %d requests%n", dynamicModels.size(), requests);
+    }
+}
@@ -0,0 +1,390 @@
+package org.cloudsimplus.com.traces;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicy;
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicyAbstract;
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
+import org.cloudsimplus.brokers.DatacenterBroker;
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.core.CloudSimTag;
+import org.cloudsimplus.core.events.SimEvent;
+import org.cloudsimplus.hosts.HostSuitability;
+import org.cloudsimplus.listeners.CloudletVmEventInfo;
+import org.cloudsimplus.listeners.EventListener;
+import org.cloudsimplus.vms.Vm;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lightweight instrumentation of the hot paths of a trace replay, to find which stage dominates a slow run
+ * without enabling TRACE logging. It keeps:
+ * <ul>
+ *   <li>the number of events processed per {@link CloudSimTag} and a {@link LatencyHistogram} of their intervals:
+ *   the wall time from the start of an event to the start of the next one;</li>
+ *   <li>the number of trace rows parsed, Cloudlets created and finished and events processed by a Broker
+ *   (of any tag, including acknowledgements and returned Cloudlets);</li>
+ *   <li>a {@link LatencyHistogram} of the wall time to place each VM, measured around
+ *   {@link VmAllocationPolicyAbstract#allocateHostForVm(Vm)} by the policy from {@link #newAllocationPolicy(boolean)}.</li>
+ * </ul>
+ *
+ * <p>The event processing listener is the only hook called for every event, and it's called before the event is processed.
+ * So an interval includes the processing of the event by its entity, but also the clock tick listeners
+ * and any other work done until the next event (except writing snapshots, which is excluded).
+ * Intervals tell which tags the replay spends its wall time around, not the processing time of an entity alone.</p>
+ *
+ * <p>Every {@link #INTERVAL_SECS} seconds of wall time, a snapshot is appended to {@code metrics.csv}
+ * (one row per metric) and {@code metrics.jsonl} (one JSON object per snapshot) inside {@link #DIRECTORY},
+ * and committed as a {@link SnapshotEvent} to Java Flight Recorder, when a recording is running.
+ * Events taking longer than 1 ms can also be recorded to JFR as {@link EventProcessedEvent},
+ * which is disabled by default (enable {@code org.cloudsimplus.traces.EventProcessed} in the JFR settings).</p>
+ */
+final class SimulationMetrics implements AutoCloseable {
+    /** Wall time between snapshots (in seconds), set with -Dtraces.metrics.interval. */
+    static final double INTERVAL_SECS = Double.parseDouble(System.getProperty("traces.metrics.interval", "10"));
+
+    /** Directory where the snapshots are written, set with -Dtraces.metrics.dir. */
+    static final String DIRECTORY = System.getProperty("traces.metrics.dir", "metrics");
+
+    @Name("org.cloudsimplus.traces.EventProcessed")
+    @Label("Simulation Event Processed")
+    @Category({"CloudSim Plus", "Traces"})
+    @Description("Wall time from the start of an event to the start of the next one")
+    @Enabled(false)
+    @Threshold("1 ms")
+    static final class EventProcessedEvent extends Event {
+        @Label("Tag")
+        String tag;
+
+        @Label("Simulation Time")
+        double simulationTime;
+    }
+
+    @Name("org.cloudsimplus.traces.MetricsSnapshot")
+    @Label("Simulation Metrics Snapshot")
+    @Category({"CloudSim Plus", "Traces"})
+    @Description("Counters of the trace replay since it started")
+    static final class SnapshotEvent extends Event {
+        @Label("Simulation Time")
+        double simulationTime;
+
+        @Label("Events Processed")
+        long events;
+
+        @Label("Trace Rows Parsed")
+        long traceRows;
+
+        @Label("Cloudlets Created")
+        long cloudletsCreated;
+
+        @Label("Cloudlets Finished")
+        long cloudletsFinished;
+
+        @Label("Broker Events")
+        long brokerEvents;
+
+        @Label("VM Allocations")
+        long vmAllocations;
+    }
+
+    private static final EventType EVENT_PROCESSED_TYPE = EventType.getEventType(EventProcessedEvent.class);
+
+    private final Map<CloudSimTag, LongAdder> eventsByTag = new EnumMap<>(CloudSimTag.class);
+    private final Map<CloudSimTag, LatencyHistogram> intervalByTag = new EnumMap<>(CloudSimTag.class);
+    private final LongAdder events = new LongAdder();
+    private final LongAdder traceRows = new LongAdder();
+    private final LongAdder cloudletsCreated = new LongAdder();
+    private final LongAdder cloudletsFinished = new LongAdder();
+    private final LongAdder brokerEvents = new LongAdder();
+    private final LatencyHistogram vmAllocation = new LatencyHistogram();
+    /** A single listener for all tracked Cloudlets, instead of a new lambda object for each one. */
+    private final EventListener<CloudletVmEventInfo> finishListener = info -> cloudletsFinished.increment();
+
+    /** Rows read by a streaming reader, added to {@link #traceRows} when a snapshot is taken. */
+    private LongSupplier traceRowsGauge = () -> 0;
+
+    private final long startNanos = System.nanoTime();
+    private long lastSnapshotNanos = startNanos;
+    private long lastSnapshotEvents;
+    private long lastSnapshotRows;
+    private long snapshots;
+    private double lastSimulationTime;
+
+    private final BufferedWriter csv;
+    private final BufferedWriter json;
+
+    /** Creates the metrics, starting new snapshot files inside {@link #DIRECTORY}. */
+    SimulationMetrics() {
+        for (final CloudSimTag tag : CloudSimTag.values()) {
+            eventsByTag.put(tag, new LongAdder());
+            intervalByTag.put(tag, new LatencyHistogram());
+        }
+
+        try {
+            final Path directory = Files.createDirectories(Path.of(DIRECTORY));
+            csv = Files.newBufferedWriter(directory.resolve("metrics.csv"));
+            json = Files.newBufferedWriter(directory.resolve("metrics.jsonl"));
+            csv.write("wall_seconds,simulation_time,metric,count,rate_per_sec,mean_us,p50_us,p99_us,max_us");
+            csv.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts recording the events of a simulation and taking periodic snapshots.
+     * Must be called before the simulation starts.
+     */
+    void attach(final CloudSimPlus simulation) {
+        final var previous = new Object() {
+            CloudSimTag tag;
+            long nanos;
+            EventProcessedEvent jfrEvent;
+        };
+
+        simulation.addOnEventProcessingListener(evt -> {
+            final long now = System.nanoTime();
+            if (previous.tag != null) {
+                intervalByTag.get(previous.tag).record(now - previous.nanos);
+            }
+            if (previous.jfrEvent != null) {
+                previous.jfrEvent.commit();
+            }
+
+            previous.tag = evt.getTag();
+            previous.nanos = now;
+            previous.jfrEvent = newEventProcessed(evt);
+            onEventProcessing(evt);
+        });
+
+        simulation.addOnClockTickListener(info -> {
+            final long now = System.nanoTime();
+            if (now - lastSnapshotNanos >= INTERVAL_SECS * 1e9) {
+                snapshot(info.getTime());
+                //The snapshot is not part of the interval of the current event
+                previous.nanos += System.nanoTime() - now;
+            }
+        });
+    }
+
+    private EventProcessedEvent newEventProcessed(final SimEvent evt) {
+        if (!EVENT_PROCESSED_TYPE.isEnabled()) {
+            return null;
+        }
+
+        final var jfrEvent = new EventProcessedEvent();
+        jfrEvent.tag = evt.getTag().name();
+        jfrEvent.simulationTime = evt.getTime();
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    private void onEventProcessing(final SimEvent evt) {
+        events.increment();
+        eventsByTag.get(evt.getTag()).increment();
+        if (evt.getDestination() instanceof DatacenterBroker) {
+            brokerEvents.increment();
+        }
+    }
+
+    /**
+     * Creates the VmAllocationPolicy for a Datacenter, which records the wall time of each VM placement:
+     * the Host search and the allocation of the VM on the selected Host.
+     * @param indexed true to create a {@link VmAllocationPolicyIndexed}, false for a {@link VmAllocationPolicySimple}
+     */
+    VmAllocationPolicy newAllocationPolicy(final boolean indexed) {
+        if (indexed) {
+            return new VmAllocationPolicyIndexed() {
+                @Override
+                public HostSuitability allocateHostForVm(final Vm vm) {
+                    final long start = System.nanoTime();
+                    final HostSuitability suitability = super.allocateHostForVm(vm);
+                    recordVmAllocation(start);
+                    return suitability;
+                }
+            };
+        }
+
+        return new VmAllocationPolicySimple() {
+            @Override
+            public HostSuitability allocateHostForVm(final Vm vm) {
+                final long start = System.nanoTime();
+                final HostSuitability suitability = super.allocateHostForVm(vm);
+                recordVmAllocation(start);
+                return suitability;
+            }
+        };
+    }
+
+    private void recordVmAllocation(final long startNanos) {
+        vmAllocation.record(System.nanoTime() - startNanos);
+    }
+
+    /** Counts rows parsed from a trace file at once, such as when the whole file is read before the simulation. */
+    void addTraceRows(final long rows) {
+        traceRows.add(rows);
+    }
+
+    /**
+     * Sets a function returning the rows read so far by a streaming trace reader,
+     * which is called on the simulation thread when a snapshot is taken.
+     */
+    void setTraceRowsGauge(final LongSupplier gauge) {
+        this.traceRowsGauge = gauge;
+    }
+
+    /** Counts a created Cloudlet, and counts it again as finished when it finishes. */
+    void track(final Cloudlet cloudlet) {
+        cloudletsCreated.increment();
+        cloudlet.addOnFinishListener(finishListener);
+    }
+
+    private long getTraceRows() {
+        return traceRows.sum() + traceRowsGauge.getAsLong();
+    }
+
+    /** Appends a snapshot to the files and JFR. */
+    synchronized void snapshot(final double simulationTime) {
+        final long now = System.nanoTime();
+        final double wallSecs = (now - startNanos) / 1e9;
+        final double intervalSecs = Math.max((now - lastSnapshotNanos) / 1e9, 1e-9);
+        final long eventCount = events.sum();
+        final long rows = getTraceRows();
+        lastSimulationTime = simulationTime;
+
+        try {
+            writeCsv(wallSecs, "events", eventCount, (eventCount - lastSnapshotEvents) / intervalSecs, null);
+            writeCsv(wallSecs, "trace_rows", rows, (rows - lastSnapshotRows) / intervalSecs, null);
+            writeCsv(wallSecs, "cloudlets_created", cloudletsCreated.sum(), Double.NaN, null);
+            writeCsv(wallSecs, "cloudlets_finished", cloudletsFinished.sum(), Double.NaN, null);
+            writeCsv(wallSecs, "broker_events", brokerEvents.sum(), Double.NaN, null);
+            if (vmAllocation.getCount() > 0) {
+                writeCsv(wallSecs, "vm_allocation", vmAllocation.getCount(), Double.NaN, vmAllocation);
+            }
+            for (final CloudSimTag tag : CloudSimTag.values()) {
+                final LatencyHistogram latency = intervalByTag.get(tag);
+                if (latency.getCount() > 0) {
+                    writeCsv(wallSecs, "event_interval_" + tag.name(), eventsByTag.get(tag).sum(), Double.NaN, latency);
+                }
+            }
+
+            writeJson(wallSecs, eventCount, rows);
+            csv.flush();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final var jfrSnapshot = new SnapshotEvent();
+        if (jfrSnapshot.shouldCommit()) {
+            jfrSnapshot.simulationTime = simulationTime;
+            jfrSnapshot.events = eventCount;
+            jfrSnapshot.traceRows = rows;
+            jfrSnapshot.cloudletsCreated = cloudletsCreated.sum();
+            jfrSnapshot.cloudletsFinished = cloudletsFinished.sum();
+            jfrSnapshot.brokerEvents = brokerEvents.sum();
+            jfrSnapshot.vmAllocations = vmAllocation.getCount();
+            jfrSnapshot.commit();
+        }
+
+        lastSnapshotNanos = now;
+        lastSnapshotEvents = eventCount;
+        lastSnapshotRows = rows;
+        snapshots++;
+    }
+
+    private void writeCsv(
+        final double wallSecs, final String metric, final long count, final double rate, final LatencyHistogram latency)
+        throws IOException
+    {
+        csv.write(String.format(Locale.ROOT, "%.3f,%.2f,%s,%d,%s,%s%n",
+            wallSecs, lastSimulationTime, metric, count, Double.isNaN(rate) ? "" : String.format(Locale.ROOT, "%.1f", rate),
+            latency == null ? ",,," :
+                String.format(Locale.ROOT, "%.2f,%.2f,%.2f,%.2f",
+                    latency.getMeanNanos() / 1e3, latency.getPercentileNanos(50) / 1e3,
+                    latency.getPercentileNanos(99) / 1e3, latency.getMaxNanos() / 1e3)));
+    }
+
+    private void writeJson(final double wallSecs, final long eventCount, final long rows) throws IOException {
+        final var builder = new StringBuilder(512);
+        builder.append(String.format(Locale.ROOT,
+            "{\"wallSeconds\":%.3f,\"simulationTime\":%.2f,\"events\":%d,\"traceRows\":%d," +
+            "\"cloudletsCreated\":%d,\"cloudletsFinished\":%d,\"brokerEvents\":%d," +
+            "\"vmAllocation\":{\"count\":%d,\"meanUs\":%.2f,\"p50Us\":%.2f,\"p99Us\":%.2f,\"maxUs\":%.2f},\"intervalsByTag\":{",
+            wallSecs, lastSimulationTime, eventCount, rows,
+            cloudletsCreated.sum(), cloudletsFinished.sum(), brokerEvents.sum(),
+            vmAllocation.getCount(), vmAllocation.getMeanNanos() / 1e3, vmAllocation.getPercentileNanos(50) / 1e3,
+            vmAllocation.getPercentileNanos(99) / 1e3, vmAllocation.getMaxNanos() / 1e3));
+        boolean first = true;
+        for (final CloudSimTag tag : CloudSimTag.values()) {
+            final LatencyHistogram latency = intervalByTag.get(tag);
+            if (latency.getCount() == 0) {
+                continue;
+            }
+
+            builder.append(first ? "" : ",").append(String.format(Locale.ROOT,
+                "\"%s\":{\"count\":%d,\"meanUs\":%.2f,\"p50Us\":%.2f,\"p99Us\":%.2f,\"maxUs\":%.2f}",
+                tag.name(), eventsByTag.get(tag).sum(), latency.getMeanNanos() / 1e3,
+                latency.getPercentileNanos(50) / 1e3, latency.getPercentileNanos(99) / 1e3, latency.getMaxNanos() / 1e3));
+            first = false;
+        }
+
+        json.write(builder.append("}}").toString());
+        json.newLine();
+    }
+
+    /** Prints the counters and the event intervals of each tag, sorted by total time. */
+    void printSummary() {
+        final double wallSecs = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf(
+            "%nMetrics: %d events (%.0f/s), %d trace rows (%.0f/s), %d Cloudlets created, %d finished, %d broker events, %d snapshots in %s%n",
+            events.sum(), events.sum() / wallSecs, getTraceRows(), getTraceRows() / wallSecs,
+            cloudletsCreated.sum(), cloudletsFinished.sum(), brokerEvents.sum(), snapshots, DIRECTORY);
+        if (vmAllocation.getCount() > 0) {
+            System.out.printf("VM allocation: %d VMs placed, mean %.2f µs, p99 %.2f µs, max %.2f µs%n",
+                vmAllocation.getCount(), vmAllocation.getMeanNanos() / 1e3,
+                vmAllocation.getPercentileNanos(99) / 1e3, vmAllocation.getMaxNanos() / 1e3);
+        }
+        System.out.printf("%32s %12s %12s %10s %10s %10s %12s%n", "Tag", "Events", "Total (ms)", "Mean (µs)", "p99 (µs)", "Max (µs)", "Share (%)");
+        final double totalNanos = intervalByTag.values().stream().mapToDouble(l -> l.getMeanNanos() * l.getCount()).sum();
+        intervalByTag.entrySet().stream()
+            .filter(entry -> entry.getValue().getCount() > 0)
+            .sorted((a, b) -> Double.compare(
+                b.getValue().getMeanNanos() * b.getValue().getCount(), a.getValue().getMeanNanos() * a.getValue().getCount()))
+            .forEach(entry -> {
+                final LatencyHistogram latency = entry.getValue();
+                final double tagNanos = latency.getMeanNanos() * latency.getCount();
+                System.out.printf("%32s %12d %12.2f %10.2f %10.2f %10.2f %12.1f%n",
+                    entry.getKey(), latency.getCount(), tagNanos / 1e6, latency.getMeanNanos() / 1e3,
+                    latency.getPercentileNanos(99) / 1e3, latency.getMaxNanos() / 1e3,
+                    totalNanos == 0 ? 0 : tagNanos * 100 / totalNanos);
+            });
+    }
+
+    /** Closes the files, so a last {@link #snapshot(double)} should be taken before. */
+    @Override
+    public void close() {
+        try {
+            csv.close();
+            json.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
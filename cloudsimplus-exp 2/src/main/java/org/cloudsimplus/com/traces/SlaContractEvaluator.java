@@ -0,0 +1,274 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.datacenters.Datacenter;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.listeners.CloudletVmEventInfo;
+import org.cloudsimplus.listeners.EventListener;
+import org.cloudsimplus.slametrics.SlaContract;
+import org.cloudsimplus.slametrics.SlaMetric;
+import org.cloudsimplus.slametrics.SlaMetricDimension;
+
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Evaluates an {@link SlaContract} (such as the CustomerSLA.json resource) while the simulation runs,
+ * updating running aggregates in O(1) for each Cloudlet start and finish and each clock tick,
+ * so that no finished list has to be scanned after the simulation.
+ *
+ * <ul>
+ *   <li>WaitTime: from the Cloudlet arrival (submission plus its delay) until it starts, checked when it starts;</li>
+ *   <li>TaskCompletionTime: from the arrival until it finishes, checked when it finishes;</li>
+ *   <li>CpuUtilization: the percentage of the Datacenter PEs used by running Cloudlets,
+ *   integrated over time at each clock tick (the time outside the bounds is the violation);</li>
+ *   <li>Availability: the percentage of tracked Cloudlets that finished successfully;</li>
+ *   <li>Throughput: the output bits of finished Cloudlets per second since the first arrival.</li>
+ * </ul>
+ * <p>Times in milliseconds are converted to seconds, the simulation time unit.
+ * Price and FaultToleranceLevel are only shown, since the trace experiments don't model VM costs or replicas.</p>
+ */
+final class SlaContractEvaluator {
+    enum Metric {
+        TASK_COMPLETION_TIME("TaskCompletionTime"),
+        CPU_UTILIZATION("CpuUtilization"),
+        AVAILABILITY("Availability"),
+        WAIT_TIME("WaitTime"),
+        THROUGHPUT("Throughput"),
+        PRICE("Price"),
+        FAULT_TOLERANCE_LEVEL("FaultToleranceLevel");
+
+        private final String contractName;
+
+        Metric(final String contractName) {
+            this.contractName = contractName;
+        }
+    }
+
+    /** The accepted range of a metric, with times in seconds. */
+    record Bounds(double min, double max) {
+        static final Bounds ANY = new Bounds(-Double.MAX_VALUE, Double.MAX_VALUE);
+
+        boolean contains(final double value) {
+            return value >= min && value <= max;
+        }
+    }
+
+    /** The submission time of a tracked Cloudlet and whether it started, removed when it finishes. */
+    private static final class Tracking {
+        private final double submissionTime;
+        private boolean started;
+
+        private Tracking(final double submissionTime) {
+            this.submissionTime = submissionTime;
+        }
+    }
+
+    private final Map<Metric, Bounds> bounds = new EnumMap<>(Metric.class);
+    /** By identity, since a Cloudlet hash changes when the Broker assigns its ID on submission. */
+    private final Map<Cloudlet, Tracking> trackingByCloudlet = new IdentityHashMap<>();
+
+    /** Single listeners for all tracked Cloudlets, instead of new lambda objects for each one. */
+    private final EventListener<CloudletVmEventInfo> startListener = this::onStart;
+    private final EventListener<CloudletVmEventInfo> finishListener = this::onFinish;
+
+    private long trackedCloudlets;
+    private long startedCloudlets;
+    private long finishedCloudlets;
+    private long succeededCloudlets;
+    private long waitViolations;
+    private long completionViolations;
+    private double totalWait;
+    private double maxWait;
+    private double totalCompletion;
+    private double maxCompletion;
+    private double outputBits;
+    private double firstArrival = Double.MAX_VALUE;
+    private double lastFinish;
+
+    private long busyPes;
+    private long totalPes;
+    private double lastTickTime;
+    private double busyPeSeconds;
+    private double secondsOutsideCpuBounds;
+
+    /**
+     * @param contractPath the path of the JSON contract file, or of a resource such as {@code /CustomerSLA.json}
+     */
+    SlaContractEvaluator(final String contractPath) {
+        this(SlaContract.getInstance(contractPath));
+    }
+
+    SlaContractEvaluator(final SlaContract contract) {
+        for (final Metric metric : Metric.values()) {
+            bounds.put(metric, Bounds.ANY);
+        }
+
+        for (final SlaMetric slaMetric : contract.getMetrics()) {
+            for (final Metric metric : Metric.values()) {
+                if (metric.contractName.equals(slaMetric.getName())) {
+                    bounds.put(metric, new Bounds(toSeconds(slaMetric.getMinDimension()), toSeconds(slaMetric.getMaxDimension())));
+                }
+            }
+        }
+    }
+
+    private static double toSeconds(final SlaMetricDimension dimension) {
+        return "Milliseconds".equalsIgnoreCase(dimension.getUnit()) ? dimension.getValue() / 1000 : dimension.getValue();
+    }
+
+    Bounds getBounds(final Metric metric) {
+        return bounds.get(metric);
+    }
+
+    /**
+     * Integrates the CPU utilization at every clock tick.
+     * Must be called before the simulation starts, after the Datacenter Hosts are created.
+     */
+    void attach(final CloudSimPlus simulation, final Datacenter datacenter) {
+        for (final Host host : datacenter.getHostList()) {
+            totalPes += host.getPesNumber();
+        }
+
+        simulation.addOnClockTickListener(info -> updateCpuUtilization(info.getTime()));
+    }
+
+    private void updateCpuUtilization(final double time) {
+        final double elapsed = time - lastTickTime;
+        if (elapsed <= 0 || totalPes == 0) {
+            return;
+        }
+
+        final long usedPes = Math.min(busyPes, totalPes);
+        busyPeSeconds += usedPes * elapsed;
+        if (!bounds.get(Metric.CPU_UTILIZATION).contains(usedPes * 100.0 / totalPes)) {
+            secondsOutsideCpuBounds += elapsed;
+        }
+
+        lastTickTime = time;
+    }
+
+    /**
+     * Evaluates a Cloudlet when it starts and finishes.
+     * The submission delay is only read once the Cloudlet is submitted, since trace readers set it after creating the Cloudlet.
+     * @param submissionTime the simulation time the Cloudlet is submitted (with its submission delay) to the Broker
+     */
+    void track(final Cloudlet cloudlet, final double submissionTime) {
+        trackedCloudlets++;
+        trackingByCloudlet.put(cloudlet, new Tracking(submissionTime));
+        cloudlet.addOnStartListener(startListener);
+        cloudlet.addOnFinishListener(finishListener);
+    }
+
+    /**
+     * @param defaultArrival the arrival returned if the Cloudlet isn't tracked
+     * @return the simulation time a tracked Cloudlet arrives: its submission time plus its submission delay
+     */
+    double getArrival(final Cloudlet cloudlet, final double defaultArrival) {
+        final Tracking tracking = trackingByCloudlet.get(cloudlet);
+        return tracking == null ? defaultArrival : tracking.submissionTime + cloudlet.getSubmissionDelay();
+    }
+
+    private void onStart(final CloudletVmEventInfo info) {
+        final Tracking tracking = trackingByCloudlet.get(info.getCloudlet());
+        if (tracking == null) {
+            return;
+        }
+
+        tracking.started = true;
+        final Cloudlet cloudlet = info.getCloudlet();
+        final double arrival = tracking.submissionTime + cloudlet.getSubmissionDelay();
+        final double wait = info.getTime() - arrival;
+        firstArrival = Math.min(firstArrival, arrival);
+        startedCloudlets++;
+        busyPes += cloudlet.getPesNumber();
+        totalWait += wait;
+        maxWait = Math.max(maxWait, wait);
+        if (!bounds.get(Metric.WAIT_TIME).contains(wait)) {
+            waitViolations++;
+        }
+    }
+
+    private void onFinish(final CloudletVmEventInfo info) {
+        final Cloudlet cloudlet = info.getCloudlet();
+        final Tracking tracking = trackingByCloudlet.remove(cloudlet);
+        if (tracking == null) {
+            return;
+        }
+
+        final double time = info.getTime();
+        final double completion = time - (tracking.submissionTime + cloudlet.getSubmissionDelay());
+        finishedCloudlets++;
+        //Cloudlets cancelled or failed while waiting finish without starting, so their PEs were never busy
+        if (tracking.started) {
+            busyPes -= cloudlet.getPesNumber();
+        }
+        if (cloudlet.getStatus() == Cloudlet.Status.SUCCESS) {
+            succeededCloudlets++;
+        }
+
+        totalCompletion += completion;
+        maxCompletion = Math.max(maxCompletion, completion);
+        outputBits += cloudlet.getOutputSize() * 8.0;
+        lastFinish = Math.max(lastFinish, time);
+        if (!bounds.get(Metric.TASK_COMPLETION_TIME).contains(completion)) {
+            completionViolations++;
+        }
+    }
+
+    long getWaitViolations() {
+        return waitViolations;
+    }
+
+    long getCompletionViolations() {
+        return completionViolations;
+    }
+
+    /** @return the percentage of tracked Cloudlets that finished successfully so far */
+    double getAvailability() {
+        return trackedCloudlets == 0 ? 100 : succeededCloudlets * 100.0 / trackedCloudlets;
+    }
+
+    /** @return the mean percentage of the Datacenter PEs used by Cloudlets so far */
+    double getCpuUtilization() {
+        return totalPes == 0 || lastTickTime == 0 ? 0 : busyPeSeconds * 100 / (totalPes * lastTickTime);
+    }
+
+    /** @return the output bits of finished Cloudlets per second since the first arrival */
+    double getThroughput() {
+        final double elapsed = lastFinish - firstArrival;
+        return elapsed <= 0 ? 0 : outputBits / elapsed;
+    }
+
+    void printSummary() {
+        System.out.printf("%nSLA evaluation of %d Cloudlets (%d started, %d finished)%n",
+            trackedCloudlets, startedCloudlets, finishedCloudlets);
+        System.out.printf("%-20s %14s %14s %14s %14s %12s%n", "Metric", "Min", "Max", "Mean", "Worst", "Violations");
+        printRow(Metric.WAIT_TIME, mean(totalWait, startedCloudlets), maxWait, "%d Cloudlets".formatted(waitViolations));
+        printRow(Metric.TASK_COMPLETION_TIME, mean(totalCompletion, finishedCloudlets), maxCompletion,
+            "%d Cloudlets".formatted(completionViolations));
+        printRow(Metric.CPU_UTILIZATION, getCpuUtilization(), Double.NaN, "%.0f seconds".formatted(secondsOutsideCpuBounds));
+        printRow(Metric.AVAILABILITY, getAvailability(), Double.NaN,
+            bounds.get(Metric.AVAILABILITY).contains(getAvailability()) ? "none" : "violated");
+        printRow(Metric.THROUGHPUT, getThroughput(), Double.NaN,
+            bounds.get(Metric.THROUGHPUT).contains(getThroughput()) ? "none" : "violated");
+        printRow(Metric.PRICE, Double.NaN, Double.NaN, "not evaluated");
+        printRow(Metric.FAULT_TOLERANCE_LEVEL, Double.NaN, Double.NaN, "not evaluated");
+    }
+
+    private void printRow(final Metric metric, final double mean, final double worst, final String violations) {
+        final Bounds metricBounds = bounds.get(metric);
+        System.out.printf("%-20s %14s %14s %14s %14s %12s%n",
+            metric.contractName, format(metricBounds.min()), format(metricBounds.max()), format(mean), format(worst), violations);
+    }
+
+    private static String format(final double value) {
+        return Double.isNaN(value) || Math.abs(value) == Double.MAX_VALUE ? "-" : "%.3f".formatted(value);
+    }
+
+    private static double mean(final double total, final long count) {
+        return count == 0 ? 0 : total / count;
+    }
+}
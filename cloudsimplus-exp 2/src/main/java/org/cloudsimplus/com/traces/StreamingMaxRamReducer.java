@@ -0,0 +1,170 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the row with the maximum RAM for each jobID of a
+ * {@code jobID,taskIndex,machineID,RAM} file without materializing the rows.
+ *
+ * <p>The file is split into line-aligned chunks that are memory-mapped and
+ * parsed in parallel by {@link JobCsvParser}. Each chunk is reduced into its own
+ * {@link JobMaxRamMap} and the maps are merged in file order at the end.
+ * This way, memory is bounded by the number of distinct jobs, not by the number of rows.</p>
+ */
+final class StreamingMaxRamReducer {
+    /** Chunks are never smaller than this, to keep the per-chunk overhead negligible. */
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+
+    /** Chunks must fit into a single {@link java.nio.MappedByteBuffer}. */
+    private static final long MAX_CHUNK_BYTES = 1 << 30;
+
+    /** How many chunks each thread gets, to balance uneven chunks. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int threads;
+    private long rowsRead;
+
+    StreamingMaxRamReducer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    StreamingMaxRamReducer(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1");
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Reads the given file and reduces it to one row per jobID.
+     * @return a map containing the row with the maximum RAM for each jobID
+     */
+    JobMaxRamMap reduce(final Path filePath) {
+        try (var channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            final long[] bounds = chunkBounds(channel);
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, bounds.length - 1));
+            try {
+                final var futures = new ArrayList<Future<ChunkResult>>(bounds.length - 1);
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    final long start = bounds[i];
+                    final long end = bounds[i + 1];
+                    futures.add(executor.submit(() -> reduceChunk(channel, start, end)));
+                }
+
+                return merge(futures);
+            } finally {
+                executor.shutdownNow();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** @return the number of rows read in the last call to {@link #reduce(Path)} */
+    long getRowsRead() {
+        return rowsRead;
+    }
+
+    private JobMaxRamMap merge(final List<Future<ChunkResult>> futures) {
+        rowsRead = 0;
+        JobMaxRamMap result = null;
+        for (final var future : futures) {
+            final ChunkResult chunk = getChunk(future);
+            rowsRead += chunk.rows();
+            if (result == null) {
+                result = chunk.map();
+            } else {
+                result.mergeFrom(chunk.map());
+            }
+        }
+
+        return result == null ? new JobMaxRamMap() : result;
+    }
+
+    private static ChunkResult getChunk(final Future<ChunkResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reducing the job file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ChunkResult reduceChunk(final FileChannel channel, final long start, final long end) throws IOException {
+        final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        final var map = new JobMaxRamMap();
+        final long rows = new JobCsvParser(buffer, start).parse(map::accumulate);
+        return new ChunkResult(map, rows);
+    }
+
+    /**
+     * Splits the file into chunks whose boundaries are moved forward
+     * to the beginning of the next line.
+     * @return the chunk boundaries, where chunk i goes from bounds[i] (inclusive) to bounds[i+1] (exclusive)
+     */
+    private long[] chunkBounds(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final long target = Math.max(MIN_CHUNK_BYTES, size / ((long) threads * CHUNKS_PER_THREAD));
+        final long chunkBytes = Math.min(target, MAX_CHUNK_BYTES);
+
+        final var bounds = new ArrayList<Long>();
+        bounds.add(0L);
+        final var probe = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (size - start > chunkBytes) {
+            final long end = nextLineStart(channel, start + chunkBytes, probe);
+            if (end >= size) {
+                break;
+            }
+
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Line starting before byte offset %d is too long".formatted(start + chunkBytes));
+            }
+
+            bounds.add(end);
+            start = end;
+        }
+
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(final FileChannel channel, long position, final ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            final int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+
+            position += read;
+        }
+    }
+
+    private record ChunkResult(JobMaxRamMap map, long rows) {
+    }
+}
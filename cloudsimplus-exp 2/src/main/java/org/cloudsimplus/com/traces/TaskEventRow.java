@@ -0,0 +1,102 @@
+package org.cloudsimplus.com.traces;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A row of a Google "task events" trace file.
+ * The columns are written in the order expected by
+ * {@link org.cloudsimplus.traces.google.GoogleTaskEventsTraceReader}.
+ *
+ * @param timestamp time of the event (in microseconds)
+ * @param jobId the job the task belongs to
+ * @param taskIndex index of the task inside the job
+ * @param machineId the machine the task is on, or a negative value if not defined (as for SUBMIT events)
+ * @param eventType the event type code (0-SUBMIT 1-SCHEDULE 2-EVICT 3-FAIL 4-FINISH 5-KILL 6-LOST ...)
+ * @param username the (hashed) name of the user submitting the job
+ * @param schedulingClass the scheduling class (0 to 3)
+ * @param priority the task priority
+ * @param cpuRequest requested CPU cores (as a fraction of the largest machine)
+ * @param ramRequest requested RAM (as a fraction of the largest machine)
+ * @param diskRequest requested local disk space (as a fraction of the largest machine)
+ * @param differentMachine whether the task must run on a different machine than other tasks of its job
+ */
+record TaskEventRow(
+    long timestamp, long jobId, int taskIndex, long machineId, int eventType, String username,
+    int schedulingClass, int priority, double cpuRequest, double ramRequest, double diskRequest,
+    boolean differentMachine) implements TraceRow
+{
+    static final int SUBMIT = 0;
+    static final int SCHEDULE = 1;
+    static final int EVICT = 2;
+    static final int FINISH = 4;
+    static final int LOST = 6;
+
+    private static final int COLUMNS = 13;
+
+    /**
+     * A single String for each username, since it repeats in every row of the user
+     * and rows are kept until their window is replayed. Readers may run on several threads.
+     */
+    private static final Map<String, String> USERNAMES = new ConcurrentHashMap<>();
+
+    /**
+     * Parses a line of a task events trace file.
+     * Missing machine IDs are represented as -1 and other missing numbers as 0.
+     * Usernames are interned.
+     */
+    static TaskEventRow parse(final String line) {
+        final String[] fields = TraceRow.fields(line, COLUMNS);
+        return new TaskEventRow(
+            Long.parseLong(fields[0]), Long.parseLong(fields[2]), (int) TraceRow.parseLong(fields[3], 0),
+            TraceRow.parseLong(fields[4], -1), (int) Long.parseLong(fields[5]), intern(fields[6]),
+            (int) TraceRow.parseLong(fields[7], 0), (int) TraceRow.parseLong(fields[8], 0),
+            TraceRow.parseDouble(fields[9], 0), TraceRow.parseDouble(fields[10], 0), TraceRow.parseDouble(fields[11], 0),
+            TraceRow.parseLong(fields[12], 0) != 0);
+    }
+
+    /**
+     * Decodes a row of the {@link TraceColumnarCache} of a task events trace file,
+     * with the same defaults as {@link #parse(String)}.
+     */
+    static TaskEventRow of(final TraceColumnarCache cache, final int row) {
+        return new TaskEventRow(
+            cache.getLong(0, row, 0), cache.getLong(2, row, 0), (int) cache.getLong(3, row, 0),
+            cache.getLong(4, row, -1), (int) cache.getLong(5, row, 0), intern(cache.getString(6, row)),
+            (int) cache.getLong(7, row, 0), (int) cache.getLong(8, row, 0),
+            cache.getDouble(9, row, 0), cache.getDouble(10, row, 0), cache.getDouble(11, row, 0),
+            cache.getLong(12, row, 0) != 0);
+    }
+
+    private static String intern(final String username) {
+        final String existing = USERNAMES.putIfAbsent(username, username);
+        return existing == null ? username : existing;
+    }
+
+    /**
+     * Combines a jobId and a task index into a single key that identifies a task.
+     * It supports jobIds up to 2^39 and task indexes up to 2^24.
+     */
+    static long taskKey(final long jobId, final long taskIndex) {
+        return (jobId << 24) | taskIndex;
+    }
+
+    long taskKey() {
+        return taskKey(jobId, taskIndex);
+    }
+
+    /** @return true if the event ends the task execution (EVICT, FAIL, FINISH, KILL or LOST) */
+    boolean isTerminal() {
+        return eventType >= EVICT && eventType <= LOST;
+    }
+
+    @Override
+    public void appendCsv(final StringBuilder line) {
+        line.append(timestamp).append(",,").append(jobId).append(',').append(taskIndex).append(',');
+        TraceRow.appendOptional(line, machineId).append(',')
+            .append(eventType).append(',').append(username).append(',')
+            .append(schedulingClass).append(',').append(priority);
+        TraceRow.appendDecimals(line, cpuRequest, ramRequest, diskRequest)
+            .append(',').append(differentMachine ? 1 : 0);
+    }
+}
@@ -24,6 +24,8 @@
 package org.cloudsimplus.com.traces;
 
 import ch.qos.logback.classic.Level;
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicy;
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
 import org.cloudsimplus.brokers.DatacenterBroker;
 import org.cloudsimplus.builders.tables.CloudletsTableBuilder;
 import org.cloudsimplus.builders.tables.TextTableColumn;
@@ -52,11 +54,14 @@ import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
 import org.cloudsimplus.vms.Vm;
 import org.cloudsimplus.vms.VmSimple;
 
+import java.nio.file.Path;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
@@ -81,6 +86,120 @@ public class TaskEvents {
 
     private static final int MAX_CLOUDLETS = 32;
 
+    /**
+     * Set with -Dtraces.lazy=true to replay the trace files while the simulation runs,
+     * reading one window of trace time at once, instead of creating all Cloudlets up front.
+     * This way, {@link #MAX_CLOUDLETS} doesn't apply and whole trace files can be replayed.
+     * Add -Dtraces.cache=true to decode the rows from a {@link TraceColumnarCache} of each file
+     * (which also applies to the eager replay).
+     * @see LazyTaskEventsReplay
+     */
+    private static final boolean LAZY_REPLAY = Boolean.getBoolean("traces.lazy");
+
+    /** Length of the trace time window read at once by the lazy replay (in seconds), set with -Dtraces.window. */
+    private static final double REPLAY_WINDOW_SECS = Double.parseDouble(System.getProperty("traces.window", "300"));
+
+    /**
+     * Directory or glob (such as {@code traces/task_events/part-*.csv}) of task events part files,
+     * set with -Dtraces.events.parts to read them (in file name order) instead of {@link #TASK_EVENTS_FILE}.
+     */
+    private static final String TASK_EVENTS_PARTS = System.getProperty("traces.events.parts");
+
+    /**
+     * Directory or glob of task usage part files, set with -Dtraces.usage.parts
+     * to ingest them concurrently instead of {@link #TASK_USAGE_FILE}.
+     * @see ShardedTaskUsageIngestor
+     */
+    private static final String TASK_USAGE_PARTS = System.getProperty("traces.usage.parts");
+
+    /** Maximum number of task usage parts parsed at once, set with -Dtraces.ingest.threads. */
+    private static final int INGEST_THREADS = Integer.getInteger("traces.ingest.threads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Set with -Dtraces.utilization.table=true to keep the RAM and BW utilization of all Cloudlets
+     * in a {@link UtilizationTable} and report the peak demand of each VM.
+     * This is a reporting aid, not a performance mode: the per-VM demand only feeds that report,
+     * while the simulation still gets the VM utilization from the Cloudlet schedulers,
+     * and summing the demand at every clock tick makes the run slower, not faster.
+     * Each Cloudlet still gets a small model object for its RAM and BW.
+     * The task usage rows are then applied by a {@link TaskUsageUpdater}.
+     */
+    private static final boolean UTILIZATION_TABLE = Boolean.getBoolean("traces.utilization.table");
+
+    /**
+     * Set with -Dtraces.allocation.indexed=true to place VMs with a {@link VmAllocationPolicyIndexed},
+     * which selects the same Hosts as {@link VmAllocationPolicySimple} in O(log H) instead of O(H).
+     */
+    private static final boolean INDEXED_ALLOCATION = Boolean.getBoolean("traces.allocation.indexed");
+
+    /**
+     * Number of independent sub-simulations the lazy replay is split into, set with -Dtraces.shards,
+     * each one running on its own thread with a share of the Hosts and the users.
+     * Values greater than 1 enable the sharded replay, whose accuracy contract is in {@link ShardedTaskEventsReplay}.
+     */
+    private static final int SHARDS = Integer.getInteger("traces.shards", 1);
+
+    /**
+     * Set with -Dtraces.metrics=true to count events, trace rows, Cloudlets and broker events
+     * and measure the wall time between events of each tag and to place each VM, writing periodic snapshots.
+     * It's not used by the sharded replay.
+     * @see SimulationMetrics
+     */
+    private static final boolean METRICS = Boolean.getBoolean("traces.metrics");
+
+    /**
+     * The log level, set with -Dtraces.log.level (INFO by default).
+     * TRACE formats a message for every event on the simulation thread, which slows the replay down several times.
+     * To debug a replay, record the events into a binary file with -Dtraces.eventtrace instead,
+     * filtering by tag, entity or time window, and print it with {@code EventTraceRecorder <file> [max events]}.
+     * @see EventTraceRecorder
+     */
+    private static final Level LOG_LEVEL = Level.toLevel(System.getProperty("traces.log.level", "INFO"), Level.INFO);
+
+    /**
+     * The SLA contract file or resource (such as /CustomerSLA.json), set with -Dtraces.sla,
+     * whose metrics are evaluated while the simulation runs. It's not used by the sharded replay.
+     * @see SlaContractEvaluator
+     */
+    private static final String SLA_CONTRACT = System.getProperty("traces.sla");
+
+    /**
+     * Set with -Dtraces.sla.scheduler=true (along with {@link #SLA_CONTRACT}) to run the Cloudlets of each VM
+     * with a {@link CloudletSchedulerSlaAware}, which starts first the waiting Cloudlets closest to breaching
+     * the WaitTime or TaskCompletionTime of the contract, breaking ties by the trace priority.
+     */
+    private static final boolean SLA_SCHEDULER = Boolean.getBoolean("traces.sla.scheduler");
+
+    /**
+     * A BRITE topology file (such as topology.brite), set with -Dtraces.topology, to add network delays
+     * between the Brokers and the Datacenter, which is mapped to node 0 while Brokers take the other nodes in turn.
+     * It's not used by the sharded replay.
+     * @see LatencyMatrixTopology
+     */
+    private static final String TOPOLOGY = System.getProperty("traces.topology");
+
+    /**
+     * Set with -Dtraces.cloudlets.compact=true to give Cloudlets the {@link SharedUtilizationModels}
+     * created with the same values, instead of new model objects for each Cloudlet.
+     * The task usage rows are then applied by a {@link TaskUsageUpdater}, which copies a shared model on its first change.
+     * The footprint of each mode is measured by {@link CloudletFootprint}.
+     */
+    private static final boolean COMPACT_CLOUDLETS = Boolean.getBoolean("traces.cloudlets.compact");
+
+    /**
+     * Whether the eager replay applies the task usage rows with a {@link TaskUsageUpdater}
+     * (which finds the Cloudlets in {@link #cloudletsByTask}) instead of the stock GoogleTaskUsageTraceReader.
+     */
+    private static final boolean TASK_USAGE_UPDATER =
+        TASK_USAGE_PARTS != null || TraceColumnarCache.ENABLED || UTILIZATION_TABLE || COMPACT_CLOUDLETS;
+
+    /**
+     * Set with -Dtraces.broker.batches=true to bind Cloudlets to the VM of their Broker with the most free PEs,
+     * using a {@link LeastLoadedVmIndex}, and (in the lazy replay) to submit the Cloudlets of each Broker
+     * in batches of the ones arriving at the same time. It's not used by the sharded replay.
+     */
+    private static final boolean BROKER_BATCHES = Boolean.getBoolean("traces.broker.batches");
+
     private static final long VM_PES = 4;
     private static final int  VM_MIPS = 1000;
     private static final long VM_RAM = 1000; //in Megabytes
@@ -92,6 +211,24 @@ public class TaskEvents {
     private Datacenter datacenter;
     private Collection<Cloudlet> cloudlets;
     private GoogleTaskEventsTraceReader taskEventsReader;
+    private LazyTaskEventsReplay replay;
+    private UtilizationTable utilizationTable;
+    private SimulationMetrics metrics;
+    private EventTraceRecorder eventTrace;
+    private SlaContractEvaluator sla;
+    private LatencyMatrixTopology topology;
+    private int mappedBrokers;
+
+    /** Writes the results of finished Cloudlets while the simulation runs, if -Dtraces.results is set. */
+    private final CloudletResultSink results = CloudletResultSink.fromProperties();
+
+    private final SharedUtilizationModels sharedModels = COMPACT_CLOUDLETS ? new SharedUtilizationModels() : null;
+
+    /**
+     * Cloudlets created from the task events file, indexed by {@link TaskEventRow#taskKey(long, long)}.
+     * It's only filled when {@link #TASK_USAGE_UPDATER} needs it.
+     */
+    private final Map<Long, Cloudlet> cloudletsByTask = new HashMap<>();
 
     public static void main(String[] args) {
         new TaskEvents();
@@ -100,24 +237,93 @@ public class TaskEvents {
     private TaskEvents() {
         final double startSecs = TimeUtil.currentTimeSecs();
         System.out.printf("Simulation started at %s%n%n", LocalTime.now());
-        Log.setLevel(Level.TRACE);
+        Log.setLevel(LOG_LEVEL);
 
         simulation = new CloudSimPlus();
-        datacenter = createDatacenter();
+        if (SHARDS > 1) {
+            runShardedReplay();
+            printResults(startSecs);
+            return;
+        }
+
+        if (METRICS) {
+            metrics = new SimulationMetrics();
+            metrics.attach(simulation);
+        }
+
+        datacenter = createDatacenter(simulation, HOSTS);
+        if (UTILIZATION_TABLE) {
+            utilizationTable = new UtilizationTable();
+            utilizationTable.attach(simulation);
+        }
+
+        if (TOPOLOGY != null) {
+            topology = LatencyMatrixTopology.load(Path.of(TOPOLOGY));
+            topology.mapNode(datacenter, 0);
+            simulation.setNetworkTopology(topology);
+        }
+
+        if (SLA_CONTRACT != null) {
+            sla = new SlaContractEvaluator(SLA_CONTRACT);
+            sla.attach(simulation, datacenter);
+        }
 
-        createCloudletsAndBrokersFromTraceFile();
-        brokers.forEach(broker -> broker.submitVmList(createVms()));
-        readTaskUsageTraceFile();
+        eventTrace = EventTraceRecorder.fromProperties();
+        if (eventTrace != null) {
+            eventTrace.attach(simulation);
+        }
 
-        System.out.println("Brokers:");
-        brokers.stream().sorted().forEach(b -> System.out.printf("\t%d - %s%n", b.getId(), b.getName()));
-        System.out.println("Cloudlets:");
-        cloudlets.stream().sorted().forEach(c -> System.out.printf("\t%s (job %d)%n", c, c.getJobId()));
+        if (LAZY_REPLAY) {
+            startLazyReplay();
+        } else {
+            createCloudletsAndBrokersFromTraceFile();
+            brokers.forEach(this::initializeBroker);
+            readTaskUsageTraceFile();
+
+            System.out.println("Brokers:");
+            brokers.stream().sorted().forEach(b -> System.out.printf("\t%d - %s%n", b.getId(), b.getName()));
+            System.out.println("Cloudlets:");
+            cloudlets.stream().sorted().forEach(c -> System.out.printf("\t%s (job %d)%n", c, c.getJobId()));
+        }
 
         simulation.start();
 
+        if (LAZY_REPLAY) {
+            printLazyReplaySummary();
+        }
+        if (UTILIZATION_TABLE) {
+            utilizationTable.printSummary();
+        }
+        if (eventTrace != null) {
+            eventTrace.close();
+        }
+        if (sla != null) {
+            sla.printSummary();
+        }
+        if (topology != null) {
+            topology.printSummary();
+        }
+        if (sharedModels != null) {
+            sharedModels.printSummary();
+        }
+        if (METRICS) {
+            metrics.snapshot(simulation.clock());
+            metrics.close();
+            metrics.printSummary();
+        }
+        printResults(startSecs);
+    }
+
+    private void printResults(final double startSecs) {
+        if (results != null) {
+            results.close();
+        }
+
         System.out.printf("Total number of created Cloudlets: %d%n", getTotalCreatedCloudletsNumber());
-        brokers.stream().sorted().forEach(this::printCloudlets);
+        if (CloudletResultSink.printTables()) {
+            brokers.stream().sorted().forEach(this::printCloudlets);
+        }
+        ResultChecksum.print(brokers.stream().flatMap(broker -> broker.<Cloudlet>getCloudletFinishedList().stream()).toList());
         System.out.print("EEEE"+brokers.size());
         System.out.printf(
             "Simulation finished at %s. Execution time: %.2f seconds%n",
@@ -130,10 +336,13 @@ public class TaskEvents {
 
     
     private void createCloudletsAndBrokersFromTraceFile() {
-    	
+        if (TraceColumnarCache.ENABLED && TASK_EVENTS_PARTS == null) {
+            createCloudletsAndBrokersFromCache();
+            return;
+        }
+
         taskEventsReader =
-            GoogleTaskEventsTraceReader
-                .getInstance(simulation, TASK_EVENTS_FILE, this::createCloudlet)
+            newTaskEventsReader()
                 .setMaxCloudletsToCreate(MAX_CLOUDLETS);
         System.out.println();
         // By default, created Cloudlets are automatically submitted to their respective brokers.
@@ -144,39 +353,267 @@ public class TaskEvents {
             cloudlets.size(), brokers.size(), TASK_EVENTS_FILE);
     }
 
+    /**
+     * Creates the Cloudlets and Brokers from the {@link TraceColumnarCache} of {@link #TASK_EVENTS_FILE},
+     * with a {@link CachedTaskEventsReader} instead of the stock reader.
+     */
+    private void createCloudletsAndBrokersFromCache() {
+        final var reader =
+            new CachedTaskEventsReader(simulation, datacenter, Path.of(TASK_EVENTS_FILE), this::createCloudlet)
+                .setMaxCloudletsToCreate(MAX_CLOUDLETS);
+        System.out.println();
+        cloudlets = reader.process();
+        brokers = reader.getBrokers();
+        cloudletsByTask.putAll(reader.getCloudletsByTask());
+        if (metrics != null) {
+            metrics.addTraceRows(reader.getRowsRead());
+        }
+        System.out.printf(
+            "%d Cloudlets and %d Brokers created from the cache of the %s trace file.%n",
+            cloudlets.size(), brokers.size(), TASK_EVENTS_FILE);
+    }
+
+
+    private void startLazyReplay() {
+        replay = new LazyTaskEventsReplay(
+            simulation, datacenter, Path.of(TASK_EVENTS_FILE), Path.of(TASK_USAGE_FILE), REPLAY_WINDOW_SECS,
+            this::createCloudlet, this::initializeBroker)
+            .setArrivalBatches(BROKER_BATCHES);
+        brokers = replay.getBrokers();
+        if (metrics != null) {
+            metrics.setTraceRowsGauge(replay::getRowsRead);
+        }
+        replay.start();
+        System.out.printf(
+            "Replaying %s and %s in windows of %.0f seconds.%n%n", TASK_EVENTS_FILE, TASK_USAGE_FILE, REPLAY_WINDOW_SECS);
+    }
+
+    /**
+     * Replays the trace files in {@link #SHARDS} sub-simulations, using a thread for each one.
+     * The utilization table is not used, since it's not shared between threads.
+     * With {@link #COMPACT_CLOUDLETS}, each shard has its own {@link SharedUtilizationModels},
+     * since a model can't be shared by Cloudlets of different simulations.
+     */
+    private void runShardedReplay() {
+        final var shardModels = new SharedUtilizationModels[SHARDS];
+        final var sharded = new ShardedTaskEventsReplay(
+            SHARDS, HOSTS, Path.of(TASK_EVENTS_FILE), Path.of(TASK_USAGE_FILE), REPLAY_WINDOW_SECS,
+            this::createDatacenter,
+            shard -> {
+                final SharedUtilizationModels models = COMPACT_CLOUDLETS ? new SharedUtilizationModels() : null;
+                shardModels[shard] = models;
+                return event -> createCloudlet(event, models);
+            },
+            broker -> broker.submitVmList(createVms()));
+        System.out.printf(
+            "Replaying %s and %s in %d shards, in windows of %.0f seconds.%n", TASK_EVENTS_FILE, TASK_USAGE_FILE, SHARDS, REPLAY_WINDOW_SECS);
+        sharded.run(SHARDS);
+        brokers = sharded.getBrokers();
+        sharded.printSummary();
+        for (final SharedUtilizationModels models : shardModels) {
+            if (models != null) {
+                models.printSummary();
+            }
+        }
+    }
+
+    /**
+     * Submits the VMs of a new Broker and maps it to a node of the {@link #topology}, if there is one.
+     * With {@link #BROKER_BATCHES}, Cloudlets are bound to its VMs by a {@link LeastLoadedVmIndex}.
+     */
+    private void initializeBroker(final DatacenterBroker broker) {
+        if (topology != null) {
+            topology.mapInTurn(broker, mappedBrokers++, 1);
+        }
+        if (BROKER_BATCHES) {
+            LeastLoadedVmIndex.install(broker);
+        }
+
+        broker.submitVmList(createVms());
+    }
+
+    private void printLazyReplaySummary() {
+        final var usage = replay.getUsageUpdater();
+        System.out.printf(
+            "%d Cloudlets submitted and %d terminated by trace events in %d windows (at most %d in flight).%n",
+            replay.getSubmittedCloudlets(), replay.getTerminatedCloudlets(), replay.getWindows(), replay.getMaxInFlight());
+        System.out.printf("Cloudlets submitted to Brokers in %d batches.%n", replay.getSubmissionBatches());
+        if (replay.getOutOfOrderRows() > 0) {
+            System.out.printf("%d trace rows read out of timestamp order.%n", replay.getOutOfOrderRows());
+        }
+        System.out.printf(
+            "%d task usage rows applied (%d for tasks not running).%n%n", usage.getAppliedRows(), usage.getUnmatchedRows());
+    }
+
+    private GoogleTaskEventsTraceReader newTaskEventsReader() {
+        if (TASK_EVENTS_PARTS != null) {
+            final var parts = ShardedTaskUsageIngestor.resolveShards(TASK_EVENTS_PARTS);
+            return new GoogleTaskEventsTraceReader(
+                simulation, TASK_EVENTS_PARTS, ShardedTaskUsageIngestor.concatenate(parts), this::createCloudlet);
+        }
+
+        return new GoogleTaskEventsTraceReader(
+            simulation, TraceInputStreams.decodedName(TASK_EVENTS_FILE), TraceInputStreams.open(TASK_EVENTS_FILE), this::createCloudlet);
+    }
 
     private Cloudlet createCloudlet(final TaskEvent event) {
+        final Cloudlet cloudlet = createCloudlet(
+            event.actualCpuCores(VM_PES), event.getResourceRequestForRam(), event.getResourceRequestForLocalDiskSpace(), sharedModels);
+        setSlaPriority(cloudlet, event.getPriority());
+        if (TASK_USAGE_UPDATER) {
+            cloudletsByTask.put(TaskEventRow.taskKey(event.getJobId(), event.getTaskIndex()), cloudlet);
+        }
+        return cloudlet;
+    }
+
+    private Cloudlet createCloudlet(final TaskEventRow event) {
+        return createCloudlet(event, sharedModels);
+    }
+
+    /**
+     * @param models the shared utilization models of the simulation creating the Cloudlet,
+     *               or null unless {@link #COMPACT_CLOUDLETS}
+     */
+    private Cloudlet createCloudlet(final TaskEventRow event, final SharedUtilizationModels models) {
+        //Same number of cores as TaskEvent.actualCpuCores()
+        final Cloudlet cloudlet = createCloudlet((long) (event.cpuRequest() * VM_PES), event.ramRequest(), event.diskRequest(), models);
+        setSlaPriority(cloudlet, event.priority());
+        return cloudlet;
+    }
+
+    /**
+     * Sets the trace task priority as the Cloudlet priority, which orders the waiting Cloudlets
+     * of a {@link CloudletSchedulerSlaAware}. Other runs keep the default priority, so their results don't change.
+     */
+    private void setSlaPriority(final Cloudlet cloudlet, final int priority) {
+        if (sla != null && SLA_SCHEDULER) {
+            cloudlet.setPriority(priority);
+        }
+    }
+
+    private Cloudlet createCloudlet(
+        final long cpuCores, final double ramRequest, final double diskRequest, final SharedUtilizationModels models)
+    {
 
-        final long pesNumber = positive(event.actualCpuCores(VM_PES), VM_PES);
+        final long pesNumber = positive(cpuCores, VM_PES);
 
-        final double maxRamUsagePercent = positive(event.getResourceRequestForRam(), Conversion.HUNDRED_PERCENT);
-        final var utilizationRam = new UtilizationModelDynamic(0, maxRamUsagePercent);
+        final double maxRamUsagePercent = positive(ramRequest, Conversion.HUNDRED_PERCENT);
 
-        final double sizeInMB    = event.getResourceRequestForLocalDiskSpace() * VM_SIZE_MB + 1;
+        final double sizeInMB    = diskRequest * VM_SIZE_MB + 1;
         final long   sizeInBytes = (long) Math.ceil(megaBytesToBytes(sizeInMB));
-        return new CloudletSimple(CLOUDLET_LENGTH, pesNumber)
+        final var cloudlet = new CloudletSimple(CLOUDLET_LENGTH, pesNumber)
             .setFileSize(sizeInBytes)
-            .setOutputSize(sizeInBytes)
+            .setOutputSize(sizeInBytes);
+        if (metrics != null) {
+            metrics.track(cloudlet);
+        }
+        if (results != null) {
+            results.track(cloudlet);
+        }
+        if (sla != null) {
+            sla.track(cloudlet, simulation.clock());
+        }
+        if (utilizationTable != null) {
+            return setTableUtilizationModels(cloudlet, pesNumber, maxRamUsagePercent);
+        }
+        if (models != null) {
+            return cloudlet
+                .setUtilizationModelCpu(models.full())
+                .setUtilizationModelBw(models.dynamic(0.25, 1))
+                .setUtilizationModelRam(models.dynamic(0, maxRamUsagePercent));
+        }
+
+        return cloudlet
             .setUtilizationModelCpu(new UtilizationModelFull())
             .setUtilizationModelBw(new UtilizationModelDynamic(0.25))
-            .setUtilizationModelRam(utilizationRam);
+            .setUtilizationModelRam(new UtilizationModelDynamic(0, maxRamUsagePercent));
+    }
+
+    /**
+     * Sets the same utilization models as {@link #createCloudlet(long, double, double, SharedUtilizationModels)},
+     * but backed by the {@link #utilizationTable}. CPU keeps a shared {@link UtilizationModelFull}
+     * (so task usage rows don't change it), which the table records as 100%.
+     */
+    private Cloudlet setTableUtilizationModels(final Cloudlet cloudlet, final long pesNumber, final double maxRamUsagePercent) {
+        final int row = utilizationTable.add(pesNumber, new double[]{1, 0, 0.25}, new double[]{1, maxRamUsagePercent, 1});
+        cloudlet
+            .setUtilizationModelCpu(utilizationTable.full())
+            .setUtilizationModelBw(utilizationTable.column(UtilizationTable.Resource.BW, row))
+            .setUtilizationModelRam(utilizationTable.column(UtilizationTable.Resource.RAM, row));
+        utilizationTable.track(cloudlet);
+        return cloudlet;
     }
 
     private void readTaskUsageTraceFile() {
-        final var reader = GoogleTaskUsageTraceReader.getInstance(taskEventsReader, TASK_USAGE_FILE);
+        if (TASK_USAGE_PARTS != null) {
+            readTaskUsageTraceParts(ShardedTaskUsageIngestor.resolveShards(TASK_USAGE_PARTS), TASK_USAGE_PARTS);
+            return;
+        }
+
+        if (TraceColumnarCache.ENABLED) {
+            readTaskUsageTraceCache();
+            return;
+        }
+
+        if (UTILIZATION_TABLE || COMPACT_CLOUDLETS) {
+            //GoogleTaskUsageTraceReader only updates UtilizationModelDynamic objects, and would change shared ones in place
+            readTaskUsageTraceParts(List.of(Path.of(TASK_USAGE_FILE)), TASK_USAGE_FILE);
+            return;
+        }
+
+        final var reader =
+            new GoogleTaskUsageTraceReader(taskEventsReader, TraceInputStreams.decodedName(TASK_USAGE_FILE), TraceInputStreams.open(TASK_USAGE_FILE));
         final var cloudletsCollection = reader.process();
         System.out.printf("%d Cloudlets processed from the %s trace file.%n", cloudletsCollection.size(), TASK_USAGE_FILE);
         System.out.println();
     }
 
-    private Datacenter createDatacenter() {
-        final var hostList = new ArrayList<Host>(HOSTS);
-        for(int i = 0; i < HOSTS; i++) {
+    /** Applies the task usage rows of the created Cloudlets, decoded from the {@link TraceColumnarCache} of {@link #TASK_USAGE_FILE}. */
+    private void readTaskUsageTraceCache() {
+        final var updater = new TaskUsageUpdater(cloudletsByTask::get);
+        final long rows;
+        try (var usage = TraceWindowReader.openCache(Path.of(TASK_USAGE_FILE), TaskUsageRow::of)) {
+            usage.readUntil(Long.MAX_VALUE, row -> {
+                if (cloudletsByTask.containsKey(row.taskKey())) {
+                    updater.add(row);
+                }
+            });
+            rows = usage.getRowsRead();
+        }
+
+        if (metrics != null) {
+            metrics.addTraceRows(rows);
+        }
+        updater.attach(simulation, datacenter);
+        System.out.printf("%d task usage rows read for %d Cloudlets from the cache of %s.%n%n", rows, cloudletsByTask.size(), TASK_USAGE_FILE);
+    }
+
+    private void readTaskUsageTraceParts(final List<Path> parts, final String source) {
+        final var ingestor = new ShardedTaskUsageIngestor(parts, INGEST_THREADS);
+        final var updater = new TaskUsageUpdater(cloudletsByTask::get);
+        final long rows = ingestor.ingest(cloudletsByTask::containsKey, updater::add);
+        if (metrics != null) {
+            metrics.addTraceRows(rows);
+        }
+        updater.attach(simulation, datacenter);
+        ingestor.printReport();
+        System.out.printf("%d task usage rows merged for %d Cloudlets from %s.%n%n", rows, cloudletsByTask.size(), source);
+    }
+
+    private Datacenter createDatacenter(final CloudSimPlus simulation, final int hostCount) {
+        final var hostList = new ArrayList<Host>(hostCount);
+        for(int i = 0; i < hostCount; i++) {
             hostList.add(createHost());
         }
 
-        //Uses a VmAllocationPolicySimple by default
-        return new DatacenterSimple(simulation, hostList);
+        final VmAllocationPolicy allocationPolicy;
+        if (metrics != null) {
+            allocationPolicy = metrics.newAllocationPolicy(INDEXED_ALLOCATION);
+        } else {
+            allocationPolicy = INDEXED_ALLOCATION ? new VmAllocationPolicyIndexed() : new VmAllocationPolicySimple();
+        }
+
+        return new DatacenterSimple(simulation, hostList, allocationPolicy);
     }
 
     private long getVmSize(final Cloudlet cloudlet) {
@@ -211,7 +648,12 @@ public class TaskEvents {
 
     private Vm createVm() {
         //Uses a CloudletSchedulerTimeShared by default
-        return new VmSimple(VM_MIPS, VM_PES).setRam(VM_RAM).setBw(VM_BW).setSize(VM_SIZE_MB);
+        final var vm = new VmSimple(VM_MIPS, VM_PES).setRam(VM_RAM).setBw(VM_BW).setSize(VM_SIZE_MB);
+        if (sla != null && SLA_SCHEDULER) {
+            vm.setCloudletScheduler(new CloudletSchedulerSlaAware(sla));
+        }
+
+        return vm;
     }
 
     private void printCloudlets(final DatacenterBroker broker) {
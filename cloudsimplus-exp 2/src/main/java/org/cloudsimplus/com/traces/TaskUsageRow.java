@@ -0,0 +1,91 @@
+package org.cloudsimplus.com.traces;
+
+/**
+ * A row of a Google "task usage" trace file, with all its columns,
+ * as read by {@link org.cloudsimplus.traces.google.GoogleTaskUsageTraceReader}.
+ *
+ * @param startTime start of the measurement period (in microseconds)
+ * @param endTime end of the measurement period (in microseconds)
+ * @param jobId the job the task belongs to
+ * @param taskIndex index of the task inside the job
+ * @param machineId the machine the task ran on, or a negative value if not defined
+ * @param meanCpuUsageRate mean CPU usage during the period
+ * @param canonicalMemoryUsage canonical memory usage
+ * @param assignedMemoryUsage memory assigned to the task
+ * @param unmappedPageCacheMemoryUsage unmapped page cache memory usage
+ * @param totalPageCacheMemoryUsage total page cache memory usage
+ * @param maximumMemoryUsage maximum memory usage during the period
+ * @param meanDiskIoTime mean disk I/O time
+ * @param meanLocalDiskSpaceUsed mean local disk space used
+ * @param maximumCpuUsage maximum CPU usage during the period
+ * @param maximumDiskIoTime maximum disk I/O time
+ * @param cyclesPerInstruction cycles per instruction (CPI)
+ * @param memoryAccessesPerInstruction memory accesses per instruction (MAI)
+ * @param samplePortion sample portion
+ * @param aggregationType 1 if maximums from subcontainers were summed, 0 otherwise
+ * @param sampledCpuUsage mean CPU usage during a random 1s sample in the period
+ */
+record TaskUsageRow(
+    long startTime, long endTime, long jobId, int taskIndex, long machineId,
+    double meanCpuUsageRate, double canonicalMemoryUsage, double assignedMemoryUsage,
+    double unmappedPageCacheMemoryUsage, double totalPageCacheMemoryUsage, double maximumMemoryUsage,
+    double meanDiskIoTime, double meanLocalDiskSpaceUsed, double maximumCpuUsage, double maximumDiskIoTime,
+    double cyclesPerInstruction, double memoryAccessesPerInstruction, double samplePortion,
+    int aggregationType, double sampledCpuUsage) implements TraceRow
+{
+    private static final int COLUMNS = 20;
+
+    /**
+     * Parses a line of a task usage trace file.
+     * Missing machine IDs are represented as -1 and other missing numbers as 0.
+     */
+    static TaskUsageRow parse(final String line) {
+        final String[] fields = TraceRow.fields(line, COLUMNS);
+        return new TaskUsageRow(
+            Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+            (int) TraceRow.parseLong(fields[3], 0), TraceRow.parseLong(fields[4], -1),
+            TraceRow.parseDouble(fields[5], 0), TraceRow.parseDouble(fields[6], 0), TraceRow.parseDouble(fields[7], 0),
+            TraceRow.parseDouble(fields[8], 0), TraceRow.parseDouble(fields[9], 0), TraceRow.parseDouble(fields[10], 0),
+            TraceRow.parseDouble(fields[11], 0), TraceRow.parseDouble(fields[12], 0), TraceRow.parseDouble(fields[13], 0),
+            TraceRow.parseDouble(fields[14], 0), TraceRow.parseDouble(fields[15], 0), TraceRow.parseDouble(fields[16], 0),
+            TraceRow.parseDouble(fields[17], 0), (int) TraceRow.parseLong(fields[18], 0), TraceRow.parseDouble(fields[19], 0));
+    }
+
+    /**
+     * Decodes a row of the {@link TraceColumnarCache} of a task usage trace file,
+     * with the same defaults as {@link #parse(String)}.
+     */
+    static TaskUsageRow of(final TraceColumnarCache cache, final int row) {
+        return new TaskUsageRow(
+            cache.getLong(0, row, 0), cache.getLong(1, row, 0), cache.getLong(2, row, 0),
+            (int) cache.getLong(3, row, 0), cache.getLong(4, row, -1),
+            cache.getDouble(5, row, 0), cache.getDouble(6, row, 0), cache.getDouble(7, row, 0),
+            cache.getDouble(8, row, 0), cache.getDouble(9, row, 0), cache.getDouble(10, row, 0),
+            cache.getDouble(11, row, 0), cache.getDouble(12, row, 0), cache.getDouble(13, row, 0),
+            cache.getDouble(14, row, 0), cache.getDouble(15, row, 0), cache.getDouble(16, row, 0),
+            cache.getDouble(17, row, 0), (int) cache.getLong(18, row, 0), cache.getDouble(19, row, 0));
+    }
+
+    long taskKey() {
+        return TaskEventRow.taskKey(jobId, taskIndex);
+    }
+
+    @Override
+    public long timestamp() {
+        return startTime;
+    }
+
+    @Override
+    public void appendCsv(final StringBuilder line) {
+        line.append(startTime).append(',').append(endTime).append(',')
+            .append(jobId).append(',').append(taskIndex).append(',');
+        TraceRow.appendOptional(line, machineId);
+        TraceRow.appendDecimals(line,
+            meanCpuUsageRate, canonicalMemoryUsage, assignedMemoryUsage,
+            unmappedPageCacheMemoryUsage, totalPageCacheMemoryUsage, maximumMemoryUsage,
+            meanDiskIoTime, meanLocalDiskSpaceUsed, maximumCpuUsage, maximumDiskIoTime,
+            cyclesPerInstruction, memoryAccessesPerInstruction, samplePortion)
+            .append(',').append(aggregationType);
+        TraceRow.appendDecimals(line, sampledCpuUsage);
+    }
+}
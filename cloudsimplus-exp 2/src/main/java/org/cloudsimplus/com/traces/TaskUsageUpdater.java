@@ -0,0 +1,122 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.core.CloudSimTag;
+import org.cloudsimplus.datacenters.Datacenter;
+import org.cloudsimplus.utilizationmodels.UtilizationModel;
+import org.cloudsimplus.utilizationmodels.UtilizationModelDynamic;
+
+import java.util.Queue;
+import java.util.function.LongFunction;
+
+/**
+ * Applies {@link TaskUsageRow}s to the Cloudlets they refer to, once the simulation
+ * clock reaches the start of each row's measurement period.
+ * Rows should be added in timestamp order: a row added out of order is kept in a {@link TimestampQueue}
+ * and applied at its own time or, if that time has already passed, at the next update.
+ *
+ * <p>The mean CPU usage and the canonical memory usage of a row become the current utilization
+ * of the Cloudlet CPU and RAM {@link UtilizationModelDynamic}s or {@link UtilizationTable.Column}s
+ * (other models are left untouched),
+ * capped to each model's maximum utilization.
+ * A {@link SharedUtilizationModels.Shared} model is first replaced by a copy owned by the Cloudlet.</p>
+ */
+final class TaskUsageUpdater {
+    private static final double MICROS_PER_SECOND = 1_000_000;
+
+    private final Queue<TaskUsageRow> pending = new TimestampQueue<>();
+    private final LongFunction<Cloudlet> cloudletFinder;
+    private long appliedRows;
+    private long unmatchedRows;
+
+    /**
+     * @param cloudletFinder gets the Cloudlet of a task from its {@link TaskEventRow#taskKey(long, long) key},
+     *                       or null if the task is not running
+     */
+    TaskUsageUpdater(final LongFunction<Cloudlet> cloudletFinder) {
+        this.cloudletFinder = cloudletFinder;
+    }
+
+    void add(final TaskUsageRow row) {
+        pending.add(row);
+    }
+
+    /** @return the timestamp (in microseconds) of the next row to be applied, or {@link Long#MAX_VALUE} if none */
+    long nextTimestamp() {
+        final TaskUsageRow row = pending.peek();
+        return row == null ? Long.MAX_VALUE : row.timestamp();
+    }
+
+    /**
+     * Applies every pending row whose measurement period has already started.
+     * @param time the current simulation time (in seconds)
+     * @return the number of rows applied
+     */
+    int applyUntil(final double time) {
+        int count = 0;
+        while (!pending.isEmpty() && pending.peek().timestamp() / MICROS_PER_SECOND <= time) {
+            final TaskUsageRow row = pending.poll();
+            final Cloudlet cloudlet = cloudletFinder.apply(row.taskKey());
+            if (cloudlet == null) {
+                unmatchedRows++;
+                continue;
+            }
+
+            apply(cloudlet, row);
+            count++;
+        }
+
+        appliedRows += count;
+        return count;
+    }
+
+    /**
+     * Applies the pending rows while the simulation runs, using a clock tick listener.
+     * The simulation is woken up at each distinct row timestamp by sending a
+     * {@link CloudSimTag#VM_UPDATE_CLOUDLET_PROCESSING} to the datacenter.
+     * Must be called before the simulation starts, after all rows are added.
+     */
+    void attach(final CloudSimPlus simulation, final Datacenter datacenter) {
+        long lastTimestamp = -1;
+        for (final TaskUsageRow row : pending) {
+            if (row.timestamp() != lastTimestamp) {
+                datacenter.schedule(row.timestamp() / MICROS_PER_SECOND, CloudSimTag.VM_UPDATE_CLOUDLET_PROCESSING);
+                lastTimestamp = row.timestamp();
+            }
+        }
+
+        simulation.addOnClockTickListener(info -> applyUntil(info.getTime()));
+    }
+
+    static void apply(final Cloudlet cloudlet, final TaskUsageRow row) {
+        //Shared models are never changed in place: the Cloudlet gets a copy of its own instead
+        if (cloudlet.getUtilizationModelCpu() instanceof SharedUtilizationModels.Shared shared) {
+            cloudlet.setUtilizationModelCpu(shared.copy());
+        }
+        if (cloudlet.getUtilizationModelRam() instanceof SharedUtilizationModels.Shared shared) {
+            cloudlet.setUtilizationModelRam(shared.copy());
+        }
+
+        setCurrentUtilization(cloudlet.getUtilizationModelCpu(), row.meanCpuUsageRate());
+        setCurrentUtilization(cloudlet.getUtilizationModelRam(), row.canonicalMemoryUsage());
+    }
+
+    private static void setCurrentUtilization(final UtilizationModel model, final double usage) {
+        if (model instanceof UtilizationModelDynamic dynamic) {
+            dynamic.setCurrentUtilization(Math.min(usage, dynamic.getMaxResourceUtilization()));
+        } else if (model instanceof UtilizationTable.Column column) {
+            column.setCurrentUtilization(usage);
+        }
+    }
+
+    /** @return the number of rows applied to a running Cloudlet */
+    long getAppliedRows() {
+        return appliedRows;
+    }
+
+    /** @return the number of rows discarded because their task was not running */
+    long getUnmatchedRows() {
+        return unmatchedRows;
+    }
+}
@@ -0,0 +1,83 @@
+package org.cloudsimplus.com.traces;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * A queue of trace rows polled in timestamp order, for rows read from a file that is mostly sorted by timestamp.
+ *
+ * <p>Rows added in order (with a timestamp equal to or greater than the last one in order) go into a FIFO queue,
+ * so a sorted file costs O(1) per row, as a plain {@link ArrayDeque}.
+ * A row with a lower timestamp (such as one from an earlier window of a {@link TraceWindowReader})
+ * goes into a sorted map instead, and is polled before the in-order rows with a greater timestamp.
+ * Rows with the same timestamp are polled in the order they were added,
+ * except that rows out of order come after the in-order ones.</p>
+ *
+ * @param <R> the type of the rows
+ */
+final class TimestampQueue<R extends TraceRow> extends AbstractQueue<R> {
+    private final ArrayDeque<R> inOrder = new ArrayDeque<>();
+    /** Rows added out of order, grouped by timestamp in the order they were added. */
+    private final TreeMap<Long, ArrayDeque<R>> outOfOrder = new TreeMap<>();
+    private int outOfOrderSize;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    @Override
+    public boolean offer(final R row) {
+        if (row.timestamp() >= lastTimestamp) {
+            inOrder.add(row);
+            lastTimestamp = row.timestamp();
+        } else {
+            outOfOrder.computeIfAbsent(row.timestamp(), timestamp -> new ArrayDeque<>()).add(row);
+            outOfOrderSize++;
+        }
+
+        return true;
+    }
+
+    @Override
+    public R poll() {
+        if (!fromOutOfOrder()) {
+            return inOrder.poll();
+        }
+
+        final Map.Entry<Long, ArrayDeque<R>> first = outOfOrder.firstEntry();
+        final R row = first.getValue().poll();
+        if (first.getValue().isEmpty()) {
+            outOfOrder.remove(first.getKey());
+        }
+
+        outOfOrderSize--;
+        return row;
+    }
+
+    @Override
+    public R peek() {
+        return fromOutOfOrder() ? outOfOrder.firstEntry().getValue().peek() : inOrder.peek();
+    }
+
+    /** @return true if the next row comes from the rows added out of order */
+    private boolean fromOutOfOrder() {
+        if (outOfOrder.isEmpty()) {
+            return false;
+        }
+
+        final R first = inOrder.peek();
+        return first == null || outOfOrder.firstKey() < first.timestamp();
+    }
+
+    @Override
+    public int size() {
+        return inOrder.size() + outOfOrderSize;
+    }
+
+    /** @return an iterator over all rows, which is not in timestamp order if rows were added out of order */
+    @Override
+    public Iterator<R> iterator() {
+        return Stream.concat(inOrder.stream(), outOfOrder.values().stream().flatMap(ArrayDeque::stream)).iterator();
+    }
+}
@@ -0,0 +1,159 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Injects synthetic rows (such as {@link TaskEventRow}s and {@link TaskUsageRow}s)
+ * into a Google Cluster Data trace file, without reading the whole file into memory
+ * and rewriting it for each new row.
+ *
+ * <ul>
+ *   <li>{@link #append(Collection)} writes a batch of rows at the end of the file,
+ *   using a single {@link FileChannel} append;</li>
+ *   <li>{@link #merge(Collection)} inserts a batch of rows in timestamp order,
+ *   streaming the existing (timestamp-ordered) file once into a new file.</li>
+ * </ul>
+ */
+final class TraceAugmenter {
+    private final Path traceFile;
+
+    TraceAugmenter(final Path traceFile) {
+        this.traceFile = traceFile;
+    }
+
+    /**
+     * Appends the rows at the end of the trace file, in the given order.
+     * The file is created if it doesn't exist.
+     * @return the number of bytes written
+     */
+    long append(final Collection<? extends TraceRow> rows) {
+        final var text = new StringBuilder(rows.size() * 96 + 1);
+        if (!endsWithLineBreak()) {
+            text.append('\n');
+        }
+
+        final var line = new StringBuilder(128);
+        for (final TraceRow row : rows) {
+            line.setLength(0);
+            row.appendCsv(line);
+            text.append(line).append('\n');
+        }
+
+        final ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+        try (var channel = FileChannel.open(traceFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final long written = bytes.remaining();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Inserts the rows into the trace file so that all rows stay ordered by timestamp.
+     * The existing file must already be ordered by timestamp (as Google traces are).
+     * Existing rows come before new rows with the same timestamp.
+     * Comment lines (starting with #) and lines not starting with a numeric timestamp, such as a header, are kept in place.
+     *
+     * <p>The file is read and written once, using a temporary file in the same directory
+     * that atomically replaces the original one at the end.</p>
+     */
+    void merge(final Collection<? extends TraceRow> rows) {
+        final List<TraceRow> pending = new ArrayList<>(rows);
+        pending.sort(Comparator.comparingLong(TraceRow::timestamp));
+        if (!Files.exists(traceFile)) {
+            append(pending);
+            return;
+        }
+
+        final Path tempFile = traceFile.resolveSibling(traceFile.getFileName() + ".merging");
+        try (BufferedReader reader = Files.newBufferedReader(traceFile);
+             BufferedWriter writer = Files.newBufferedWriter(tempFile))
+        {
+            final var line = new StringBuilder(128);
+            int next = 0;
+            String existing;
+            while ((existing = reader.readLine()) != null) {
+                final long timestamp = leadingTimestamp(existing);
+                if (timestamp >= 0) {
+                    for (; next < pending.size() && pending.get(next).timestamp() < timestamp; next++) {
+                        writeRow(writer, pending.get(next), line);
+                    }
+                }
+
+                writer.write(existing);
+                writer.write('\n');
+            }
+
+            for (; next < pending.size(); next++) {
+                writeRow(writer, pending.get(next), line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Files.move(tempFile, traceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeRow(final BufferedWriter writer, final TraceRow row, final StringBuilder line) throws IOException {
+        line.setLength(0);
+        row.appendCsv(line);
+        writer.append(line).append('\n');
+    }
+
+    /**
+     * @return the timestamp in the first field of a line,
+     *         or -1 for comments, blank lines and other lines whose first field is not a number
+     */
+    private static long leadingTimestamp(final String line) {
+        if (line.isBlank() || line.charAt(0) == '#') {
+            return -1;
+        }
+
+        final int comma = line.indexOf(',');
+        final String field = (comma < 0 ? line : line.substring(0, comma)).strip();
+        if (field.isEmpty() || !field.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+
+        return Long.parseLong(field);
+    }
+
+    private boolean endsWithLineBreak() {
+        try (var channel = FileChannel.open(traceFile, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+
+            final var last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) == '\n';
+        } catch (NoSuchFileException e) {
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
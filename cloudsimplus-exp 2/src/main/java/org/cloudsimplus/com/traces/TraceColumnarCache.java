@@ -0,0 +1,595 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A binary, columnar cache of a Google Cluster Data trace file (such as task events or task usage),
+ * so that repeated experiments don't have to re-tokenize the CSV text.
+ *
+ * <p>The cache is built once by {@link #openOrBuild(Path)} into two files beside the trace:</p>
+ * <ul>
+ *   <li>{@code <trace>.cache}: one fixed-width column per CSV field. Integer fields take 8 bytes per row,
+ *   decimal fields 8 bytes and text fields (such as the username) a 4-byte code into a dictionary.
+ *   Missing values are stored as {@link Long#MIN_VALUE}, {@link Double#NaN} or code -1;</li>
+ *   <li>{@code <trace>.cache.idx}: the row numbers sorted by timestamp (column 0)
+ *   and by jobId (column 2).</li>
+ * </ul>
+ *
+ * <p>Both files record the size and modification time of the trace file
+ * and are rebuilt when the trace changes. Columns are memory-mapped on open,
+ * so opening a cache costs just a few system calls.</p>
+ *
+ * <p>{@link TraceWindowReader#openCache(Path, RowDecoder)} decodes the rows straight from the columns
+ * (into {@link TaskEventRow}s and {@link TaskUsageRow}s), in timestamp order,
+ * without rendering them as text. This way the cache feeds the lazy and sharded replays
+ * and, through a {@link CachedTaskEventsReader}, the eager replay of {@link TaskEvents}.</p>
+ */
+final class TraceColumnarCache {
+    /**
+     * Set with -Dtraces.cache=true to read the trace files from their cache
+     * (built beside each trace file on the first run), instead of parsing the CSV files.
+     * The eager replay of {@link TaskEvents} then creates its Cloudlets with a {@link CachedTaskEventsReader}
+     * and applies the task usage rows with a {@link TaskUsageUpdater}, instead of the stock Google trace readers
+     * (task events part files are still read as text).
+     */
+    static final boolean ENABLED = Boolean.getBoolean("traces.cache");
+
+    static final int TIMESTAMP_COLUMN = 0;
+    static final int JOB_ID_COLUMN = 2;
+
+    static final long MISSING_LONG = Long.MIN_VALUE;
+    static final int MISSING_CODE = -1;
+
+    private static final int MAGIC = 0x47544343; // "GTCC"
+    private static final int VERSION = 1;
+    private static final int STAGING_BYTES = 1 << 16;
+
+    private enum ColumnType { LONG, DOUBLE, STRING }
+
+    /**
+     * Creates an object from a row of a cache.
+     * @param <R> the type of the decoded rows
+     */
+    @FunctionalInterface
+    interface RowDecoder<R> {
+        R decode(TraceColumnarCache cache, int row);
+    }
+
+    private final int rows;
+    private final ColumnType[] types;
+    private final ByteBuffer[] columns;
+    private final String[][] dictionaries;
+    private final ByteBuffer byTimestamp;
+    private final ByteBuffer byJobId;
+
+    private TraceColumnarCache(
+        final int rows, final ColumnType[] types, final ByteBuffer[] columns,
+        final String[][] dictionaries, final ByteBuffer byTimestamp, final ByteBuffer byJobId)
+    {
+        this.rows = rows;
+        this.types = types;
+        this.columns = columns;
+        this.dictionaries = dictionaries;
+        this.byTimestamp = byTimestamp;
+        this.byJobId = byJobId;
+    }
+
+    /**
+     * Opens the cache of a trace file, building it first if it doesn't exist
+     * or if the trace file has changed since it was built.
+     * Calls are serialized, so that the shards of a replay opening the same file build it just once.
+     */
+    static synchronized TraceColumnarCache openOrBuild(final Path traceFile) {
+        try {
+            final var source = SourceStamp.of(traceFile);
+            if (!source.matches(cacheFile(traceFile)) || !source.matches(indexFile(traceFile))) {
+                build(traceFile, source);
+            }
+
+            return open(traceFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Path cacheFile(final Path traceFile) {
+        return traceFile.resolveSibling(traceFile.getFileName() + ".cache");
+    }
+
+    static Path indexFile(final Path traceFile) {
+        return traceFile.resolveSibling(traceFile.getFileName() + ".cache.idx");
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getColumns() {
+        return types.length;
+    }
+
+    /** @return the value of an integer column or {@link #MISSING_LONG} */
+    long getLong(final int column, final int row) {
+        return switch (types[column]) {
+            case LONG -> columns[column].getLong(row * Long.BYTES);
+            case DOUBLE -> {
+                final double value = getDouble(column, row);
+                yield Double.isNaN(value) ? MISSING_LONG : (long) value;
+            }
+            case STRING -> throw new IllegalArgumentException("Column %d is not numeric".formatted(column));
+        };
+    }
+
+    /** @return the value of a numeric column or {@link Double#NaN} if missing */
+    double getDouble(final int column, final int row) {
+        return switch (types[column]) {
+            case DOUBLE -> columns[column].getDouble(row * Double.BYTES);
+            case LONG -> {
+                final long value = getLong(column, row);
+                yield value == MISSING_LONG ? Double.NaN : value;
+            }
+            case STRING -> throw new IllegalArgumentException("Column %d is not numeric".formatted(column));
+        };
+    }
+
+    /** @return the value of a column as text, or an empty string if missing (or beyond the last column of the file) */
+    String getString(final int column, final int row) {
+        if (column >= types.length) {
+            return "";
+        }
+
+        return switch (types[column]) {
+            case STRING -> {
+                final int code = columns[column].getInt(row * Integer.BYTES);
+                yield code == MISSING_CODE ? "" : dictionaries[column][code];
+            }
+            case LONG -> {
+                final long value = getLong(column, row);
+                yield value == MISSING_LONG ? "" : Long.toString(value);
+            }
+            case DOUBLE -> {
+                final double value = getDouble(column, row);
+                yield Double.isNaN(value) ? "" : Double.toString(value);
+            }
+        };
+    }
+
+    /**
+     * @return the value of an integer column, or the default value if it's missing
+     * (including columns beyond the last one of the file)
+     */
+    long getLong(final int column, final int row, final long defaultValue) {
+        if (column >= types.length) {
+            return defaultValue;
+        }
+
+        final long value = getLong(column, row);
+        return value == MISSING_LONG ? defaultValue : value;
+    }
+
+    /**
+     * @return the value of a numeric column, or the default value if it's missing
+     * (including columns beyond the last one of the file)
+     */
+    double getDouble(final int column, final int row, final double defaultValue) {
+        if (column >= types.length) {
+            return defaultValue;
+        }
+
+        final double value = getDouble(column, row);
+        return Double.isNaN(value) ? defaultValue : value;
+    }
+
+    /**
+     * @param position a position between 0 and {@link #getRows()} - 1
+     * @return the number of the row at the given position in timestamp order
+     */
+    int rowAtTimestampPosition(final int position) {
+        return byTimestamp.getInt(position * Integer.BYTES);
+    }
+
+    /**
+     * @return the position (in timestamp order) of the first row with timestamp
+     * equal to or greater than the given one, or {@link #getRows()} if there is none
+     */
+    int firstTimestampPosition(final long timestamp) {
+        return lowerBound(byTimestamp, TIMESTAMP_COLUMN, timestamp);
+    }
+
+    /** @return the numbers of the rows of a job, in file order */
+    int[] rowsOfJob(final long jobId) {
+        final int first = lowerBound(byJobId, JOB_ID_COLUMN, jobId);
+        int last = first;
+        while (last < rows && getLong(JOB_ID_COLUMN, byJobId.getInt(last * Integer.BYTES)) == jobId) {
+            last++;
+        }
+
+        final int[] result = new int[last - first];
+        for (int i = first; i < last; i++) {
+            result[i - first] = byJobId.getInt(i * Integer.BYTES);
+        }
+
+        return result;
+    }
+
+    /** Binary search over rows sorted by the given column. */
+    private int lowerBound(final ByteBuffer order, final int column, final long key) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (getLong(column, order.getInt(mid * Integer.BYTES)) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private static TraceColumnarCache open(final Path traceFile) throws IOException {
+        try (var channel = FileChannel.open(cacheFile(traceFile), StandardOpenOption.READ)) {
+            final var header = readHeader(channel);
+            final int rows = header.getInt();
+            final int columnCount = header.getInt();
+            final var types = new ColumnType[columnCount];
+            final var columns = new ByteBuffer[columnCount];
+            final var dictionaries = new String[columnCount][];
+            for (int column = 0; column < columnCount; column++) {
+                types[column] = ColumnType.values()[header.get()];
+                final long dataOffset = header.getLong();
+                final long dictionaryOffset = header.getLong();
+                columns[column] = map(channel, dataOffset, (long) rows * width(types[column]));
+                if (types[column] == ColumnType.STRING) {
+                    dictionaries[column] = readDictionary(channel, dictionaryOffset);
+                }
+            }
+
+            try (var indexChannel = FileChannel.open(indexFile(traceFile), StandardOpenOption.READ)) {
+                final var indexHeader = readHeader(indexChannel);
+                final long indexStart = indexHeader.position();
+                final long orderBytes = (long) rows * Integer.BYTES;
+                final var byTimestamp = map(indexChannel, indexStart, orderBytes);
+                final var byJobId = map(indexChannel, indexStart + orderBytes, orderBytes);
+                return new TraceColumnarCache(rows, types, columns, dictionaries, byTimestamp, byJobId);
+            }
+        }
+    }
+
+    /**
+     * Reads the common header of the cache and index files, positioned after the source stamp.
+     * The header of the cache file has at most 16 bytes + 17 bytes per column.
+     */
+    private static ByteBuffer readHeader(final FileChannel channel) throws IOException {
+        final var header = ByteBuffer.allocate((int) Math.min(channel.size(), STAGING_BYTES)).order(ByteOrder.nativeOrder());
+        channel.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IllegalStateException("Invalid trace cache file");
+        }
+
+        header.getLong(); //source size
+        header.getLong(); //source modification time
+        return header;
+    }
+
+    private static ByteBuffer map(final FileChannel channel, final long offset, final long bytes) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static String[] readDictionary(final FileChannel channel, final long offset) throws IOException {
+        final var buffer = map(channel, offset, channel.size() - offset);
+        final var dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            final var bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        return dictionary;
+    }
+
+    private static int width(final ColumnType type) {
+        return type == ColumnType.STRING ? Integer.BYTES : Long.BYTES;
+    }
+
+    /** The number of rows and the type of each column of a trace file. */
+    private record Layout(int rows, ColumnType[] types) {}
+
+    /**
+     * Builds the cache in two passes over the trace file:
+     * the first one finds the number of rows and the type of each column;
+     * the second one writes the columns.
+     */
+    private static void build(final Path traceFile, final SourceStamp source) throws IOException {
+        final Layout layout = scanLayout(traceFile);
+        final ColumnType[] types = layout.types();
+        final int rows = layout.rows();
+        final int headerBytes = 4 * Integer.BYTES + 2 * Long.BYTES + types.length * (1 + 2 * Long.BYTES);
+        if (headerBytes > STAGING_BYTES) {
+            throw new IllegalStateException("Too many columns in " + traceFile);
+        }
+
+        final long[] dataOffsets = new long[types.length];
+        long offset = headerBytes;
+        for (int column = 0; column < types.length; column++) {
+            dataOffsets[column] = offset;
+            offset += (long) rows * width(types[column]);
+        }
+
+        final long[] timestamps = new long[rows];
+        final long[] jobIds = new long[rows];
+        final long[] dictionaryOffsets = new long[types.length];
+        final Path tempFile = cacheFile(traceFile).resolveSibling(cacheFile(traceFile).getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final List<Map<String, Integer>> codes = writeColumns(traceFile, channel, types, dataOffsets, timestamps, jobIds);
+            long dictionaryOffset = offset;
+            for (int column = 0; column < types.length; column++) {
+                if (types[column] == ColumnType.STRING) {
+                    dictionaryOffsets[column] = dictionaryOffset;
+                    dictionaryOffset += writeDictionary(channel, dictionaryOffset, codes.get(column));
+                }
+            }
+
+            final var header = newHeader(source, headerBytes);
+            header.putInt(rows).putInt(types.length);
+            for (int column = 0; column < types.length; column++) {
+                header.put((byte) types[column].ordinal()).putLong(dataOffsets[column]).putLong(dictionaryOffsets[column]);
+            }
+
+            writeFully(channel, header.flip(), 0);
+        }
+
+        writeIndex(traceFile, source, timestamps, jobIds);
+        Files.move(tempFile, cacheFile(traceFile), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Layout scanLayout(final Path traceFile) throws IOException {
+        final var types = new ArrayList<ColumnType>();
+        int rows = 0;
+        try (BufferedReader reader = TraceInputStreams.newBufferedReader(traceFile)) {
+            final var fields = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (isComment(line)) {
+                    continue;
+                }
+
+                rows++;
+                split(line, fields);
+                for (int column = 0; column < fields.size(); column++) {
+                    if (column == types.size()) {
+                        types.add(ColumnType.LONG);
+                    }
+
+                    types.set(column, widen(types.get(column), fields.get(column)));
+                }
+            }
+        }
+
+        return new Layout(rows, types.toArray(new ColumnType[0]));
+    }
+
+    private static ColumnType widen(final ColumnType current, final String value) {
+        if (value.isEmpty() || current == ColumnType.STRING) {
+            return current;
+        }
+
+        if (current == ColumnType.LONG && isLong(value)) {
+            return ColumnType.LONG;
+        }
+
+        try {
+            Double.parseDouble(value);
+            return ColumnType.DOUBLE;
+        } catch (NumberFormatException e) {
+            return ColumnType.STRING;
+        }
+    }
+
+    private static boolean isLong(final String value) {
+        try {
+            Long.parseLong(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static List<Map<String, Integer>> writeColumns(
+        final Path traceFile, final FileChannel channel, final ColumnType[] types,
+        final long[] dataOffsets, final long[] timestamps, final long[] jobIds) throws IOException
+    {
+        final var codes = new ArrayList<Map<String, Integer>>(types.length);
+        final var staging = new ByteBuffer[types.length];
+        final long[] written = new long[types.length];
+        for (int column = 0; column < types.length; column++) {
+            codes.add(new HashMap<>());
+            staging[column] = ByteBuffer.allocate(STAGING_BYTES).order(ByteOrder.nativeOrder());
+        }
+
+        try (BufferedReader reader = TraceInputStreams.newBufferedReader(traceFile)) {
+            final var fields = new ArrayList<String>();
+            int row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (isComment(line)) {
+                    continue;
+                }
+
+                split(line, fields);
+                for (int column = 0; column < types.length; column++) {
+                    final String value = column < fields.size() ? fields.get(column) : "";
+                    final var buffer = staging[column];
+                    if (buffer.remaining() < Long.BYTES) {
+                        written[column] += writeFully(channel, buffer.flip(), dataOffsets[column] + written[column]);
+                        buffer.clear();
+                    }
+
+                    switch (types[column]) {
+                        case LONG -> buffer.putLong(value.isEmpty() ? MISSING_LONG : Long.parseLong(value));
+                        case DOUBLE -> buffer.putDouble(value.isEmpty() ? Double.NaN : Double.parseDouble(value));
+                        case STRING -> {
+                            final var dictionary = codes.get(column);
+                            buffer.putInt(value.isEmpty() ? MISSING_CODE : dictionary.computeIfAbsent(value, key -> dictionary.size()));
+                        }
+                    }
+                }
+
+                timestamps[row] = numericKey(types, fields, TIMESTAMP_COLUMN);
+                jobIds[row] = numericKey(types, fields, JOB_ID_COLUMN);
+                row++;
+            }
+        }
+
+        for (int column = 0; column < types.length; column++) {
+            writeFully(channel, staging[column].flip(), dataOffsets[column] + written[column]);
+        }
+
+        return codes;
+    }
+
+    private static long numericKey(final ColumnType[] types, final List<String> fields, final int column) {
+        if (column >= types.length || types[column] == ColumnType.STRING || column >= fields.size() || fields.get(column).isEmpty()) {
+            return MISSING_LONG;
+        }
+
+        return types[column] == ColumnType.LONG ? Long.parseLong(fields.get(column)) : (long) Double.parseDouble(fields.get(column));
+    }
+
+    private static long writeDictionary(final FileChannel channel, final long offset, final Map<String, Integer> codes) throws IOException {
+        final var values = new String[codes.size()];
+        codes.forEach((value, code) -> values[code] = value);
+
+        final var encoded = new ArrayList<byte[]>(values.length);
+        int bytes = Integer.BYTES;
+        for (final String value : values) {
+            final byte[] text = value.getBytes(StandardCharsets.UTF_8);
+            if (text.length > 0xFFFF) {
+                throw new IllegalStateException("Trace field too long to be cached");
+            }
+
+            encoded.add(text);
+            bytes += Short.BYTES + text.length;
+        }
+
+        final var buffer = ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder()).putInt(values.length);
+        encoded.forEach(text -> buffer.putShort((short) text.length).put(text));
+        return writeFully(channel, buffer.flip(), offset);
+    }
+
+    private static void writeIndex(final Path traceFile, final SourceStamp source, final long[] timestamps, final long[] jobIds) throws IOException {
+        final int rows = timestamps.length;
+        final var header = newHeader(source, 2 * Integer.BYTES + 2 * Long.BYTES);
+        try (var channel = FileChannel.open(indexFile(traceFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = writeFully(channel, header.flip(), 0);
+            for (final long[] keys : List.of(timestamps, jobIds)) {
+                final int[] order = sortedRows(keys);
+                final var buffer = ByteBuffer.allocate(rows * Integer.BYTES).order(ByteOrder.nativeOrder());
+                buffer.asIntBuffer().put(order);
+                offset += writeFully(channel, buffer, offset);
+            }
+        }
+    }
+
+    private static ByteBuffer newHeader(final SourceStamp source, final int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.nativeOrder())
+            .putInt(MAGIC).putInt(VERSION).putLong(source.size()).putLong(source.modifiedMillis());
+    }
+
+    /** @return the row numbers sorted by key; rows with equal keys keep the file order */
+    private static int[] sortedRows(final long[] keys) {
+        final int[] rows = new int[keys.length];
+        Arrays.setAll(rows, i -> i);
+        mergeSort(rows, new int[rows.length], 0, rows.length, keys);
+        return rows;
+    }
+
+    private static void mergeSort(final int[] rows, final int[] temp, final int from, final int to, final long[] keys) {
+        if (to - from < 2) {
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        mergeSort(rows, temp, from, mid, keys);
+        mergeSort(rows, temp, mid, to, keys);
+        if (keys[rows[mid - 1]] <= keys[rows[mid]]) {
+            return;
+        }
+
+        System.arraycopy(rows, from, temp, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && keys[temp[left]] <= keys[temp[right]])) {
+                rows[i] = temp[left++];
+            } else {
+                rows[i] = temp[right++];
+            }
+        }
+    }
+
+    private static long writeFully(final FileChannel channel, final ByteBuffer buffer, final long offset) throws IOException {
+        final long bytes = buffer.remaining();
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        return bytes;
+    }
+
+    private static boolean isComment(final String line) {
+        return line.isBlank() || line.charAt(0) == '#';
+    }
+
+    private static void split(final String line, final List<String> fields) {
+        fields.clear();
+        int start = 0;
+        int comma;
+        while ((comma = line.indexOf(',', start)) >= 0) {
+            fields.add(line.substring(start, comma).strip());
+            start = comma + 1;
+        }
+
+        fields.add(line.substring(start).strip());
+    }
+
+    /** The size and modification time of a trace file, used to detect a stale cache. */
+    private record SourceStamp(long size, long modifiedMillis) {
+        static SourceStamp of(final Path traceFile) throws IOException {
+            return new SourceStamp(Files.size(traceFile), Files.getLastModifiedTime(traceFile).toMillis());
+        }
+
+        boolean matches(final Path cacheFile) throws IOException {
+            if (!Files.exists(cacheFile)) {
+                return false;
+            }
+
+            try (var channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+                final var header = ByteBuffer.allocate(2 * Integer.BYTES + 2 * Long.BYTES).order(ByteOrder.nativeOrder());
+                channel.read(header, 0);
+                header.flip();
+                return header.remaining() == header.capacity()
+                    && header.getInt() == MAGIC && header.getInt() == VERSION
+                    && header.getLong() == size && header.getLong() == modifiedMillis;
+            }
+        }
+    }
+}
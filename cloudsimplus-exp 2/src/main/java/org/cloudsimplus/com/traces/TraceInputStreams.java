@@ -0,0 +1,109 @@
+package org.cloudsimplus.com.traces;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import org.cloudsimplus.util.ResourceLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens trace files that may be compressed, so the Google traces can be read
+ * straight from their {@code .csv.gz} files, without being decompressed to disk first.
+ * The compression is given by the file extension:
+ *
+ * <ul>
+ *   <li>{@code .gz}: gzip, decoded by the JDK inflater using large buffers;</li>
+ *   <li>{@code .zst}: Zstandard, decoded by the pure-Java aircompressor library;</li>
+ *   <li>anything else: an uncompressed file.</li>
+ * </ul>
+ *
+ * <p>Compressed files are read and decoded on a separate thread (see {@link PipelinedInputStream}),
+ * so decoding runs concurrently with parsing.</p>
+ */
+final class TraceInputStreams {
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final String ZSTD_EXTENSION = ".zst";
+
+    /** Size of the buffer holding the compressed bytes read from the file. */
+    private static final int COMPRESSED_BUFFER_SIZE = 256 * 1024;
+
+    /** Size of the decoded blocks handed over to the reader thread. */
+    private static final int DECODED_BLOCK_SIZE = 1024 * 1024;
+
+    /** Maximum number of decoded blocks waiting to be read. */
+    private static final int QUEUED_BLOCKS = 8;
+
+    private TraceInputStreams() {/**/}
+
+    /**
+     * Opens a trace file given its path in the file system or
+     * (when there is no such file) in the classpath.
+     * @return a stream with the decoded file contents
+     */
+    static InputStream open(final String filePath) {
+        final var path = Path.of(filePath);
+        if (Files.exists(path)) {
+            return open(path);
+        }
+
+        return decode(ResourceLoader.newInputStream(filePath, TraceInputStreams.class), filePath);
+    }
+
+    /** @return a stream with the decoded contents of a trace file */
+    static InputStream open(final Path filePath) {
+        try {
+            return decode(Files.newInputStream(filePath), filePath.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** @return a reader for the decoded lines of a trace file */
+    static BufferedReader newBufferedReader(final Path filePath) {
+        return new BufferedReader(new InputStreamReader(open(filePath), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the name of a trace file without its compression extension (if any).
+     * CloudSim Plus trace readers must receive this name together with an already decoded stream,
+     * otherwise they would try to decompress gzip files again.
+     */
+    static String decodedName(final String filePath) {
+        if (filePath.endsWith(GZIP_EXTENSION)) {
+            return filePath.substring(0, filePath.length() - GZIP_EXTENSION.length());
+        }
+
+        if (filePath.endsWith(ZSTD_EXTENSION)) {
+            return filePath.substring(0, filePath.length() - ZSTD_EXTENSION.length());
+        }
+
+        return filePath;
+    }
+
+    private static InputStream decode(final InputStream raw, final String filePath) {
+        final String name = Path.of(filePath).getFileName().toString();
+        try {
+            if (filePath.endsWith(GZIP_EXTENSION)) {
+                final var gzip = new GZIPInputStream(raw, COMPRESSED_BUFFER_SIZE);
+                return new PipelinedInputStream(gzip, name, DECODED_BLOCK_SIZE, QUEUED_BLOCKS);
+            }
+
+            if (filePath.endsWith(ZSTD_EXTENSION)) {
+                final var zstd = new ZstdInputStream(new BufferedInputStream(raw, COMPRESSED_BUFFER_SIZE));
+                return new PipelinedInputStream(zstd, name, DECODED_BLOCK_SIZE, QUEUED_BLOCKS);
+            }
+
+            return raw;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.cloudsimplus.com.traces;
+
+import java.math.BigDecimal;
+
+/**
+ * A row of a Google Cluster Data trace file that can be written back to the file.
+ * @see TraceAugmenter
+ */
+interface TraceRow {
+    /** @return the timestamp (in microseconds) the rows of the trace file are ordered by */
+    long timestamp();
+
+    /**
+     * Appends the row to the given builder as comma-separated values,
+     * following the column order of the trace file (without the line break).
+     */
+    void appendCsv(StringBuilder line);
+
+    /** Appends a value that may be missing from the trace, represented by a negative number. */
+    static StringBuilder appendOptional(final StringBuilder line, final long value) {
+        return value < 0 ? line : line.append(value);
+    }
+
+    /**
+     * Appends each value preceded by a comma, in plain decimal notation (such as 0.00029 instead of 2.9E-4),
+     * as in the trace files.
+     */
+    static StringBuilder appendDecimals(final StringBuilder line, final double... values) {
+        for (final double value : values) {
+            line.append(',').append(BigDecimal.valueOf(value).stripTrailingZeros().toPlainString());
+        }
+
+        return line;
+    }
+
+    /**
+     * Splits a CSV line into exactly the given number of fields,
+     * filling the missing trailing fields with empty strings.
+     */
+    static String[] fields(final String line, final int count) {
+        final var fields = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            if (start > line.length()) {
+                fields[i] = "";
+                continue;
+            }
+
+            final int comma = line.indexOf(',', start);
+            final int end = comma < 0 ? line.length() : comma;
+            fields[i] = line.substring(start, end).strip();
+            start = end + 1;
+        }
+
+        return fields;
+    }
+
+    /** @return the field as a long, or the default value if the field is empty */
+    static long parseLong(final String field, final long defaultValue) {
+        return field.isEmpty() ? defaultValue : Long.parseLong(field);
+    }
+
+    /** @return the field as a double, or the default value if the field is empty */
+    static double parseDouble(final String field, final double defaultValue) {
+        return field.isEmpty() ? defaultValue : Double.parseDouble(field);
+    }
+}
@@ -0,0 +1,147 @@
+package org.cloudsimplus.com.traces;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reads a timestamp-ordered trace file one time window at a time,
+ * so that only the rows of the current window need to be kept in memory.
+ * It holds a single row of lookahead: the first row after the last window read.
+ * Lines starting with {@code #} and blank lines are skipped.
+ * Rows can also be decoded from the {@link TraceColumnarCache} of the file.
+ *
+ * <p>A row with a timestamp lower than the previous one (which may belong to a window already read)
+ * is tolerated: it's read with the window being read and counted by {@link #getOutOfOrderRows()}.
+ * Consumers keep the rows in a {@link TimestampQueue}, so such a row is applied at its own time
+ * or, if that time has already passed, at once.</p>
+ *
+ * @param <R> the type of the parsed rows
+ */
+final class TraceWindowReader<R extends TraceRow> implements AutoCloseable {
+    /** Gets the next row, or null if there are no more rows. */
+    private final Supplier<R> source;
+    private final Closeable resource;
+    private R next;
+    private long rowsRead;
+    private long outOfOrderRows;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    private TraceWindowReader(final Supplier<R> source, final Closeable resource) {
+        this.source = source;
+        this.resource = resource;
+        this.next = readRow();
+    }
+
+    TraceWindowReader(final BufferedReader reader, final Function<String, R> parser) {
+        this(() -> readLine(reader, parser), reader);
+    }
+
+    static <R extends TraceRow> TraceWindowReader<R> open(final Path filePath, final Function<String, R> parser) {
+        return new TraceWindowReader<>(TraceInputStreams.newBufferedReader(filePath), parser);
+    }
+
+    /**
+     * Reads a trace file from its {@link TraceColumnarCache} (building it if needed), in timestamp order.
+     * Rows are decoded straight from the mapped columns.
+     */
+    static <R extends TraceRow> TraceWindowReader<R> openCache(
+        final Path filePath, final TraceColumnarCache.RowDecoder<R> decoder)
+    {
+        final var cache = TraceColumnarCache.openOrBuild(filePath);
+        final int[] position = {0};
+        final Supplier<R> source = () ->
+            position[0] < cache.getRows() ? decoder.decode(cache, cache.rowAtTimestampPosition(position[0]++)) : null;
+        return new TraceWindowReader<>(source, () -> {});
+    }
+
+    /**
+     * Reads a trace file from its cache if {@link TraceColumnarCache#ENABLED} or from the CSV file otherwise.
+     */
+    static <R extends TraceRow> TraceWindowReader<R> open(
+        final Path filePath, final Function<String, R> parser, final TraceColumnarCache.RowDecoder<R> decoder)
+    {
+        return TraceColumnarCache.ENABLED ? openCache(filePath, decoder) : open(filePath, parser);
+    }
+
+    /** @return true if there are rows not read yet */
+    boolean hasNext() {
+        return next != null;
+    }
+
+    /** @return the timestamp of the next row to be read, or {@link Long#MAX_VALUE} if there are no more rows */
+    long nextTimestamp() {
+        return next == null ? Long.MAX_VALUE : next.timestamp();
+    }
+
+    /**
+     * Reads every row with a timestamp lower than the given one.
+     * @param endTimestamp the (exclusive) end of the window
+     * @return the number of rows read
+     */
+    int readUntil(final long endTimestamp, final Consumer<? super R> consumer) {
+        int count = 0;
+        while (next != null && next.timestamp() < endTimestamp) {
+            consumer.accept(next);
+            count++;
+            next = readRow();
+        }
+
+        return count;
+    }
+
+    /** @return the total number of rows read so far */
+    long getRowsRead() {
+        return rowsRead;
+    }
+
+    /** @return the number of rows read so far with a timestamp lower than a previous row */
+    long getOutOfOrderRows() {
+        return outOfOrderRows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            resource.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private R readRow() {
+        final R row = source.get();
+        if (row == null) {
+            return null;
+        }
+
+        rowsRead++;
+        if (row.timestamp() < lastTimestamp) {
+            outOfOrderRows++;
+        } else {
+            lastTimestamp = row.timestamp();
+        }
+
+        return row;
+    }
+
+    private static <R> R readLine(final BufferedReader reader, final Function<String, R> parser) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && line.charAt(0) != '#') {
+                    return parser.apply(line);
+                }
+            }
+
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
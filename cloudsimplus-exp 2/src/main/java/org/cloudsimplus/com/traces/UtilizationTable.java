@@ -0,0 +1,263 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.cloudlets.Cloudlet;
+import org.cloudsimplus.core.CloudSimPlus;
+import org.cloudsimplus.listeners.CloudletVmEventInfo;
+import org.cloudsimplus.listeners.EventListener;
+import org.cloudsimplus.utilizationmodels.UtilizationModelAbstract;
+import org.cloudsimplus.utilizationmodels.UtilizationModelFull;
+import org.cloudsimplus.vms.Vm;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the current CPU, RAM and BW utilization of many Cloudlets in primitive arrays (one row per Cloudlet)
+ * and sums the demand of the running Cloudlets per VM, to report the peak demand of each VM.
+ *
+ * <p>This is a reporting aid on top of the Cloudlet utilization models, not a replacement for them
+ * nor a faster way to run a simulation: the per-VM demand only feeds {@link #printSummary()},
+ * while CloudSim Plus still gets the VM utilization from the Cloudlet schedulers.
+ * Each Cloudlet still gets a small {@link Column} object for its RAM and BW, which just reads its row,
+ * and the table adds the arrays and the per-VM sums.
+ * The CPU model and the start and finish listeners are shared by all Cloudlets.</p>
+ *
+ * <p>The rows of the Cloudlets running in each VM are kept in a dense list,
+ * so the demand summed at each clock tick (see {@link #attach(CloudSimPlus)})
+ * costs O(running Cloudlets), not O(Cloudlets ever added).
+ * The Java Vector API is not used: it's still an incubator module and the per-VM sum is a scatter-add,
+ * which doesn't map well to SIMD lanes, while a plain loop over arrays is already vectorized by the JIT
+ * wherever it can be.</p>
+ */
+final class UtilizationTable {
+    enum Resource { CPU, RAM, BW }
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_VM = -1;
+
+    /** Current utilization and maximum utilization for each resource, indexed by [resource ordinal][row]. */
+    private double[][] current;
+    private double[][] max;
+    private long[] pes;
+    /** The index of the VM running each Cloudlet, or {@link #NO_VM}. */
+    private int[] vmIndexes;
+    /** The position of each running Cloudlet in the running rows of its VM. */
+    private int[] runningPositions;
+    private int size;
+
+    private final Map<Vm, Integer> vmIndexByVm = new IdentityHashMap<>();
+    private Vm[] vms = new Vm[16];
+    /** The rows of the Cloudlets running in each VM, in the first {@link #runningCounts} positions. */
+    private int[][] runningRows = new int[vms.length][];
+    private int[] runningCounts = new int[vms.length];
+    private double[][] vmDemand = new double[Resource.values().length][vms.length];
+    private double[][] vmPeakDemand = new double[Resource.values().length][vms.length];
+
+    private final UtilizationModelFull full = new UtilizationModelFull();
+    private final EventListener<CloudletVmEventInfo> startListener = info -> start(rowOf(info.getCloudlet()), info.getVm());
+    private final EventListener<CloudletVmEventInfo> finishListener = info -> finish(rowOf(info.getCloudlet()));
+
+    private long ticks;
+    private long tickNanos;
+
+    /**
+     * A view of one resource of one Cloudlet row, used as the Cloudlet {@link org.cloudsimplus.utilizationmodels.UtilizationModel}.
+     */
+    final class Column extends UtilizationModelAbstract {
+        private final int resource;
+        private final int row;
+
+        private Column(final Resource resource, final int row) {
+            this.resource = resource.ordinal();
+            this.row = row;
+        }
+
+        @Override
+        protected double getUtilizationInternal(final double time) {
+            return current[resource][row];
+        }
+
+        /** Sets the current utilization, capped to the maximum utilization of the row. */
+        void setCurrentUtilization(final double utilization) {
+            current[resource][row] = Math.min(utilization, max[resource][row]);
+        }
+    }
+
+    UtilizationTable() {
+        final int resources = Resource.values().length;
+        current = new double[resources][INITIAL_CAPACITY];
+        max = new double[resources][INITIAL_CAPACITY];
+        pes = new long[INITIAL_CAPACITY];
+        vmIndexes = new int[INITIAL_CAPACITY];
+        runningPositions = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a row for a new Cloudlet.
+     * The Cloudlet must then use the {@link #column(Resource, int) columns} of that row as its utilization models.
+     * @param utilization the initial utilization of CPU, RAM and BW
+     * @param maxUtilization the maximum utilization of CPU, RAM and BW
+     * @return the row index
+     */
+    int add(final long cloudletPes, final double[] utilization, final double[] maxUtilization) {
+        if (size == pes.length) {
+            grow();
+        }
+
+        for (int resource = 0; resource < current.length; resource++) {
+            current[resource][size] = utilization[resource];
+            max[resource][size] = maxUtilization[resource];
+        }
+
+        pes[size] = cloudletPes;
+        vmIndexes[size] = NO_VM;
+        return size++;
+    }
+
+    Column column(final Resource resource, final int row) {
+        return new Column(resource, row);
+    }
+
+    /** @return a CPU model shared by all Cloudlets, which the table records as 100% */
+    UtilizationModelFull full() {
+        return full;
+    }
+
+    /**
+     * Tracks the VM of a Cloudlet while it runs, so that its demand is summed to that VM.
+     * The BW utilization model of the Cloudlet must already be a {@link #column(Resource, int) column} of its row.
+     */
+    void track(final Cloudlet cloudlet) {
+        cloudlet.addOnStartListener(startListener).addOnFinishListener(finishListener);
+    }
+
+    private static int rowOf(final Cloudlet cloudlet) {
+        return ((Column) cloudlet.getUtilizationModelBw()).row;
+    }
+
+    private void start(final int row, final Vm vm) {
+        finish(row);
+        final int vmIndex = vmIndexOf(vm);
+        int[] rows = runningRows[vmIndex];
+        if (rows == null || runningCounts[vmIndex] == rows.length) {
+            rows = runningRows[vmIndex] = rows == null ? new int[4] : Arrays.copyOf(rows, rows.length * 2);
+        }
+
+        runningPositions[row] = runningCounts[vmIndex];
+        rows[runningCounts[vmIndex]++] = row;
+        vmIndexes[row] = vmIndex;
+    }
+
+    /** Removes a row from the running rows of its VM, moving the last one into its position. */
+    private void finish(final int row) {
+        final int vmIndex = vmIndexes[row];
+        if (vmIndex == NO_VM) {
+            return;
+        }
+
+        final int[] rows = runningRows[vmIndex];
+        final int last = rows[--runningCounts[vmIndex]];
+        rows[runningPositions[row]] = last;
+        runningPositions[last] = runningPositions[row];
+        vmIndexes[row] = NO_VM;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sums the demand of the Cloudlets running in each VM, going just through their rows,
+     * to update the peak demand reported by {@link #printSummary()}.
+     * CPU demand is in PEs (utilization × Cloudlet PEs); RAM and BW demand is the sum of utilization percentages.
+     */
+    void sumDemandByVm() {
+        final double[] cpu = current[Resource.CPU.ordinal()];
+        final double[] ram = current[Resource.RAM.ordinal()];
+        final double[] bw = current[Resource.BW.ordinal()];
+        for (int vm = 0; vm < vmIndexByVm.size(); vm++) {
+            double cpuDemand = 0;
+            double ramDemand = 0;
+            double bwDemand = 0;
+            final int[] rows = runningRows[vm];
+            for (int i = 0; i < runningCounts[vm]; i++) {
+                final int row = rows[i];
+                cpuDemand += cpu[row] * pes[row];
+                ramDemand += ram[row];
+                bwDemand += bw[row];
+            }
+
+            setDemand(Resource.CPU, vm, cpuDemand);
+            setDemand(Resource.RAM, vm, ramDemand);
+            setDemand(Resource.BW, vm, bwDemand);
+        }
+    }
+
+    private void setDemand(final Resource resource, final int vm, final double demand) {
+        vmDemand[resource.ordinal()][vm] = demand;
+        vmPeakDemand[resource.ordinal()][vm] = Math.max(vmPeakDemand[resource.ordinal()][vm], demand);
+    }
+
+    /** @return the demand of a resource summed by the last {@link #sumDemandByVm()}, or 0 if the VM never ran a Cloudlet */
+    double getDemand(final Vm vm, final Resource resource) {
+        final Integer index = vmIndexByVm.get(vm);
+        return index == null ? 0 : vmDemand[resource.ordinal()][index];
+    }
+
+    /** Sums the demand by VM at every clock tick. */
+    void attach(final CloudSimPlus simulation) {
+        simulation.addOnClockTickListener(info -> {
+            final long startNanos = System.nanoTime();
+            sumDemandByVm();
+            tickNanos += System.nanoTime() - startNanos;
+            ticks++;
+        });
+    }
+
+    void printSummary() {
+        final int vmCount = vmIndexByVm.size();
+        System.out.printf(
+            "%nUtilization table: %d Cloudlets, %d VMs, %d ticks summed in %.3f ms (%.1f µs per tick)%n",
+            size, vmCount, ticks, tickNanos / 1e6, ticks == 0 ? 0 : tickNanos / 1e3 / ticks);
+        System.out.printf("%10s %6s %16s %16s %16s%n", "VM", "Broker", "Peak CPU (PEs)", "Peak RAM (%)", "Peak BW (%)");
+        for (int index = 0; index < vmCount; index++) {
+            final Vm vm = vms[index];
+            System.out.printf("%10d %6d %16.2f %16.2f %16.2f%n",
+                vm.getId(), vm.getBroker().getId(),
+                vmPeakDemand[Resource.CPU.ordinal()][index],
+                vmPeakDemand[Resource.RAM.ordinal()][index] * 100,
+                vmPeakDemand[Resource.BW.ordinal()][index] * 100);
+        }
+    }
+
+    private int vmIndexOf(final Vm vm) {
+        return vmIndexByVm.computeIfAbsent(vm, newVm -> {
+            final int index = vmIndexByVm.size();
+            if (index == vms.length) {
+                vms = Arrays.copyOf(vms, index * 2);
+                runningRows = Arrays.copyOf(runningRows, index * 2);
+                runningCounts = Arrays.copyOf(runningCounts, index * 2);
+                for (int resource = 0; resource < vmDemand.length; resource++) {
+                    vmDemand[resource] = Arrays.copyOf(vmDemand[resource], index * 2);
+                    vmPeakDemand[resource] = Arrays.copyOf(vmPeakDemand[resource], index * 2);
+                }
+            }
+
+            vms[index] = newVm;
+            return index;
+        });
+    }
+
+    private void grow() {
+        final int capacity = pes.length * 2;
+        for (int resource = 0; resource < current.length; resource++) {
+            current[resource] = Arrays.copyOf(current[resource], capacity);
+            max[resource] = Arrays.copyOf(max[resource], capacity);
+        }
+
+        pes = Arrays.copyOf(pes, capacity);
+        vmIndexes = Arrays.copyOf(vmIndexes, capacity);
+        runningPositions = Arrays.copyOf(runningPositions, capacity);
+    }
+}
@@ -0,0 +1,179 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.schedulers.cloudlet.CloudletExecution;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The waiting Cloudlets of a {@link CloudletSchedulerFastFair}, ordered by
+ * virtual runtime, then priority, then Cloudlet ID (the order used by
+ * {@link org.cloudsimplus.schedulers.cloudlet.CloudletSchedulerCompletelyFair} to pick the next Cloudlet to run).
+ *
+ * <p>It's an array-backed binary heap whose entries know their own position,
+ * so adding, removing any Cloudlet and changing a Cloudlet key take O(log n),
+ * while getting the first Cloudlet takes O(1).
+ * The key of each Cloudlet is taken when it's added (or {@link #update(CloudletExecution) updated}),
+ * since virtual runtimes only change while Cloudlets run.</p>
+ */
+final class VirtualRuntimeQueue {
+    private static final class Entry {
+        private final CloudletExecution cloudlet;
+        private double virtualRuntime;
+        private int priority;
+        private int index;
+
+        private Entry(final CloudletExecution cloudlet) {
+            this.cloudlet = cloudlet;
+            readKey();
+        }
+
+        private void readKey() {
+            virtualRuntime = cloudlet.getVirtualRuntime();
+            priority = cloudlet.getCloudlet().getPriority();
+        }
+
+        private boolean isBefore(final Entry other) {
+            if (virtualRuntime != other.virtualRuntime) {
+                return virtualRuntime < other.virtualRuntime;
+            }
+
+            if (priority != other.priority) {
+                return priority < other.priority;
+            }
+
+            return cloudlet.getCloudletId() < other.cloudlet.getCloudletId();
+        }
+    }
+
+    private final Map<CloudletExecution, Entry> entries = new IdentityHashMap<>();
+    private Entry[] heap = new Entry[16];
+    private int size;
+
+    /** Adds a Cloudlet, or updates its key if it's already in the queue. */
+    void add(final CloudletExecution cloudlet) {
+        if (entries.containsKey(cloudlet)) {
+            update(cloudlet);
+            return;
+        }
+
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+
+        final var entry = new Entry(cloudlet);
+        entries.put(cloudlet, entry);
+        entry.index = size;
+        heap[size++] = entry;
+        siftUp(entry);
+    }
+
+    /**
+     * Reads the key of a Cloudlet in the queue again, after its virtual runtime or priority changed.
+     * Does nothing if the Cloudlet is not in the queue.
+     */
+    void update(final CloudletExecution cloudlet) {
+        final Entry entry = entries.get(cloudlet);
+        if (entry == null) {
+            return;
+        }
+
+        entry.readKey();
+        siftUp(entry);
+        siftDown(entry);
+    }
+
+    /**
+     * Removes a Cloudlet from the queue.
+     * @return true if the Cloudlet was in the queue
+     */
+    boolean remove(final CloudletExecution cloudlet) {
+        final Entry entry = entries.remove(cloudlet);
+        if (entry == null) {
+            return false;
+        }
+
+        final Entry last = heap[--size];
+        heap[size] = null;
+        if (last != entry) {
+            last.index = entry.index;
+            heap[entry.index] = last;
+            siftUp(last);
+            siftDown(last);
+        }
+
+        return true;
+    }
+
+    /** @return the first Cloudlet, or null if the queue is empty */
+    CloudletExecution peek() {
+        return size == 0 ? null : heap[0].cloudlet;
+    }
+
+    /** @return and removes the first Cloudlet, or null if the queue is empty */
+    CloudletExecution poll() {
+        final CloudletExecution first = peek();
+        if (first != null) {
+            remove(first);
+        }
+
+        return first;
+    }
+
+    boolean contains(final CloudletExecution cloudlet) {
+        return entries.containsKey(cloudlet);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void siftUp(final Entry entry) {
+        int index = entry.index;
+        while (index > 0) {
+            final int parentIndex = (index - 1) >>> 1;
+            final Entry parent = heap[parentIndex];
+            if (!entry.isBefore(parent)) {
+                break;
+            }
+
+            parent.index = index;
+            heap[index] = parent;
+            index = parentIndex;
+        }
+
+        entry.index = index;
+        heap[index] = entry;
+    }
+
+    private void siftDown(final Entry entry) {
+        int index = entry.index;
+        while (true) {
+            int childIndex = 2 * index + 1;
+            if (childIndex >= size) {
+                break;
+            }
+
+            if (childIndex + 1 < size && heap[childIndex + 1].isBefore(heap[childIndex])) {
+                childIndex++;
+            }
+
+            final Entry child = heap[childIndex];
+            if (!child.isBefore(entry)) {
+                break;
+            }
+
+            child.index = index;
+            heap[index] = child;
+            index = childIndex;
+        }
+
+        entry.index = index;
+        heap[index] = entry;
+    }
+}
@@ -0,0 +1,198 @@
+package org.cloudsimplus.com.traces;
+
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicyAbstract;
+import org.cloudsimplus.allocationpolicies.VmAllocationPolicySimple;
+import org.cloudsimplus.hosts.Host;
+import org.cloudsimplus.hosts.HostSuitability;
+import org.cloudsimplus.vms.Vm;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Selects the same Host as {@link VmAllocationPolicySimple} (the suitable Host with the most free PEs,
+ * preferring active Hosts and the first one in the Host list among ties), without going through every Host.
+ *
+ * <p>Hosts are the leaves of a segment tree (in Host list order) whose nodes keep the best Host score
+ * (active Hosts first, then free PEs), the maximum free PEs and the maximum free RAM under them.
+ * The search goes first into the child with the best score and skips
+ * subtrees which can't hold the VM or can't beat the best Host found so far,
+ * so it usually takes O(log H) for H Hosts. A leaf is updated in O(log H) whenever a VM is placed on or removed from its Host.</p>
+ *
+ * <p>Hosts added to the Datacenter (such as the ones from the {@link MachineEvents} trace) are appended to the tree
+ * at the next search. If Hosts are removed, the tree is rebuilt.
+ * Hosts are indexed when they are added, so they must be active by then (as Hosts are by default).</p>
+ */
+class VmAllocationPolicyIndexed extends VmAllocationPolicyAbstract {
+    /** Added to the score of active Hosts, so they always come before inactive ones. */
+    private static final long ACTIVE_BONUS = 1L << 40;
+
+    private Host[] hosts = new Host[0];
+    private final Map<Host, Integer> leafByHost = new IdentityHashMap<>();
+    private int hostCount;
+
+    /** Number of leaves (a power of 2) and the tree nodes, where node 1 is the root and the children of node i are 2i and 2i+1. */
+    private int leaves;
+    private long[] maxScore = new long[0];
+    private long[] maxFreePes = new long[0];
+    private long[] maxFreeRam = new long[0];
+
+    private Host best;
+    private int bestLeaf;
+    private long bestScore;
+
+    @Override
+    protected Optional<Host> defaultFindHostForVm(final Vm vm) {
+        syncHosts();
+        if (hostCount == 0) {
+            return Optional.empty();
+        }
+
+        best = null;
+        bestLeaf = Integer.MAX_VALUE;
+        bestScore = Long.MIN_VALUE;
+        search(1, 0, leaves - 1, vm);
+        final Host found = best;
+        best = null;
+        return Optional.ofNullable(found);
+    }
+
+    private void search(final int node, final int first, final int last, final Vm vm) {
+        if (first >= hostCount || maxScore[node] < bestScore || (maxScore[node] == bestScore && first > bestLeaf)) {
+            return;
+        }
+
+        if (maxFreePes[node] < vm.getPesNumber() || maxFreeRam[node] < vm.getRam().getCapacity()) {
+            return;
+        }
+
+        if (first == last) {
+            final Host host = hosts[first];
+            if (host.isSuitableForVm(vm)) {
+                best = host;
+                bestLeaf = first;
+                bestScore = maxScore[node];
+            }
+
+            return;
+        }
+
+        final int middle = (first + last) >>> 1;
+        final int left = 2 * node;
+        final int right = left + 1;
+        if (maxScore[right] > maxScore[left]) {
+            search(right, middle + 1, last, vm);
+            search(left, first, middle, vm);
+        } else {
+            search(left, first, middle, vm);
+            search(right, middle + 1, last, vm);
+        }
+    }
+
+    @Override
+    public HostSuitability allocateHostForVm(final Vm vm, final Host host) {
+        final HostSuitability suitability = super.allocateHostForVm(vm, host);
+        update(host);
+        return suitability;
+    }
+
+    @Override
+    public void deallocateHostForVm(final Vm vm) {
+        final Host host = vm.getHost();
+        super.deallocateHostForVm(vm);
+        update(host);
+    }
+
+    /** Updates the leaf of a Host and its ancestors, after its free resources changed. */
+    private void update(final Host host) {
+        final Integer leaf = host == null ? null : leafByHost.get(host);
+        if (leaf == null) {
+            return;
+        }
+
+        int node = leaves + leaf;
+        setLeaf(node, host);
+        for (node >>>= 1; node > 0; node >>>= 1) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Indexes the Hosts added to the Datacenter since the last search,
+     * or rebuilds the whole tree if Hosts were removed.
+     */
+    private void syncHosts() {
+        final List<Host> hostList = getHostList();
+        final boolean onlyAppended =
+            hostList.size() >= hostCount &&
+            (hostCount == 0 || hostList.get(hostCount - 1) == hosts[hostCount - 1]);
+        if (hostList.size() == hostCount && onlyAppended) {
+            return;
+        }
+
+        if (!onlyAppended) {
+            hostCount = 0;
+            leafByHost.clear();
+            clearLeaves(maxScore);
+            clearLeaves(maxFreePes);
+            clearLeaves(maxFreeRam);
+        }
+
+        final int previousCount = hostCount;
+        if (hostList.size() > leaves) {
+            resize(hostList.size());
+        }
+
+        for (int leaf = previousCount; leaf < hostList.size(); leaf++) {
+            final Host host = hostList.get(leaf);
+            hosts[leaf] = host;
+            leafByHost.put(host, leaf);
+            setLeaf(leaves + leaf, host);
+        }
+
+        hostCount = hostList.size();
+        for (int node = leaves - 1; node > 0; node--) {
+            pull(node);
+        }
+    }
+
+    /** Grows the tree to the next power of 2 leaves, keeping the indexed Hosts. */
+    private void resize(final int minLeaves) {
+        final int newLeaves = Math.max(1, Integer.highestOneBit(minLeaves - 1) << 1);
+        hosts = Arrays.copyOf(hosts, newLeaves);
+        maxScore = resizeLeaves(maxScore, newLeaves);
+        maxFreePes = resizeLeaves(maxFreePes, newLeaves);
+        maxFreeRam = resizeLeaves(maxFreeRam, newLeaves);
+        leaves = newLeaves;
+    }
+
+    private long[] resizeLeaves(final long[] tree, final int newLeaves) {
+        final long[] newTree = new long[2 * newLeaves];
+        Arrays.fill(newTree, Long.MIN_VALUE);
+        if (leaves > 0) {
+            System.arraycopy(tree, leaves, newTree, newLeaves, leaves);
+        }
+
+        return newTree;
+    }
+
+    /** Marks every leaf as empty, so that no search goes into it. */
+    private void clearLeaves(final long[] tree) {
+        Arrays.fill(tree, leaves, tree.length, Long.MIN_VALUE);
+    }
+
+    private void setLeaf(final int node, final Host host) {
+        maxScore[node] = (host.isActive() ? ACTIVE_BONUS : 0) + host.getFreePesNumber();
+        maxFreePes[node] = host.getFreePesNumber();
+        maxFreeRam[node] = host.getRam().getAvailableResource();
+    }
+
+    private void pull(final int node) {
+        maxScore[node] = Math.max(maxScore[2 * node], maxScore[2 * node + 1]);
+        maxFreePes[node] = Math.max(maxFreePes[2 * node], maxFreePes[2 * node + 1]);
+        maxFreeRam[node] = Math.max(maxFreeRam[2 * node], maxFreeRam[2 * node + 1]);
+    }
+}